@@ -0,0 +1,59 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.security.model.CompactToken;
+import com.example.demo.security.service.CompactTokenService;
+import com.example.demo.user.roles.Role;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks issuing and verifying compact internal tokens, to compare with the HS256 results of JwtSignatureBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactTokenBenchmark {
+
+    // Secret shared by the compact token benchmarks
+    static final String SECRET = "E1FUGDN7CoxpR3/jtqwhBMED4nmFHiijlNLIpTPc0LrFOvih4w0X/UqyNcaKb4BK";
+
+    // Id of the JWT the benchmark's tokens are exchanged for
+    private static final String PARENT_TOKEN_ID = UUID.randomUUID().toString();
+
+    private CompactTokenService compactTokenService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        compactTokenService = new CompactTokenService(SECRET, Duration.ofMinutes(5));
+        token = issue();
+    }
+
+    @Benchmark
+    public String issue() {
+        return compactTokenService.issue(42L, List.of(new SimpleGrantedAuthority(Role.ROLE_USER.name())), PARENT_TOKEN_ID,
+                null);
+    }
+
+    @Benchmark
+    public CompactToken verify() {
+        return compactTokenService.verify(token);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.user.model.User;
+import com.example.demo.user.repository.UserRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stand-in for UserRepository so the benchmarks run without Postgres.
+ * Only the methods used on the authentication paths are supported; every other call fails fast.
+ */
+public final class InMemoryUserRepository {
+
+    private InMemoryUserRepository() {
+    }
+
+    /**
+     * Creates an empty repository.
+     * @return UserRepository backed by a concurrent map keyed by email.
+     */
+    public static UserRepository create() {
+        Map<String, User> users = new ConcurrentHashMap<>();
+        AtomicLong ids = new AtomicLong();
+
+        return (UserRepository) Proxy.newProxyInstance(
+                UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findByEmail" -> Optional.ofNullable(users.get((String) args[0]));
+                    case "save", "saveAndFlush" -> {
+                        User user = (User) args[0];
+                        if (user.getId() == null) {
+                            user.setId(ids.incrementAndGet());
+                        }
+                        users.put(user.getEmail(), user);
+                        yield user;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryUserRepository" + users.keySet();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }
+        );
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.audit.service.AuditLog;
+import com.example.demo.invalidation.service.NoOpInvalidationBus;
+import com.example.demo.security.authfilter.JwtAuthFilter;
+import com.example.demo.security.authfilter.TokenAuthenticator;
+import com.example.demo.security.config.RouteTable;
+import com.example.demo.security.model.VerifiedToken;
+import com.example.demo.security.service.CompactTokenService;
+import com.example.demo.security.service.JwtKeyManager;
+import com.example.demo.security.service.JwtService;
+import com.example.demo.security.service.PrincipalService;
+import com.example.demo.security.service.TokenRevocationService;
+import com.example.demo.security.service.VerifiedTokenCache;
+import com.example.demo.user.model.User;
+import com.example.demo.user.repository.UserRepository;
+import com.example.demo.user.roles.Role;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a full JwtAuthFilter pass for a Bearer request against an in-memory user repository.
+ * Running with and without metrics shows what the filter's instrumentation costs; doFilterPublicRoute shows the cost
+ * of a Bearer request to a public route, which skips token verification, and doFilterCompactToken the cost of a
+ * request carrying a compact internal token instead of a JWT.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthFilterBenchmark {
+
+    // Base64 HMAC secret of the benchmark's signing keys
+    private static final String SECRET = "YmVuY2htYXJrLW9ubHktc2VjcmV0LWZvci1oczI1Ni1zaWduaW5nLWtleXM=";
+
+    // How the filter resolves the principal of a verified token
+    @Param({"CACHE", "CLAIMS"})
+    public PrincipalService.PrincipalMode principalMode;
+
+    // Whether the filter records its metrics; when false every meter is a no-op
+    @Param({"true", "false"})
+    public boolean metrics;
+
+    private JwtAuthFilter jwtAuthFilter;
+    private String authorizationHeader;
+    private String compactAuthorizationHeader;
+
+    @Setup
+    public void setUp() {
+
+        UserRepository userRepository = InMemoryUserRepository.create();
+        User user = userRepository.save(new User("user", "user@gmail.com", "password", Role.ROLE_USER));
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        if (!metrics) {
+            meterRegistry.config().meterFilter(MeterFilter.deny());
+        }
+        JwtService jwtService = new JwtService(new JwtKeyManager("HS256", SECRET, "", "", Duration.ZERO, Duration.ofMinutes(15)),
+                new VerifiedTokenCache(10_000, Duration.ofMinutes(10)), meterRegistry, "admin@gmail.com");
+        PrincipalService principalService = new PrincipalService(userRepository, principalMode, 10_000, Duration.ofMinutes(5),
+                Duration.ofMinutes(5), new NoOpInvalidationBus(), meterRegistry);
+        TokenRevocationService tokenRevocationService = new TokenRevocationService(1 << 20, 4, "", new NoOpInvalidationBus());
+        CompactTokenService compactTokenService = new CompactTokenService(CompactTokenBenchmark.SECRET, Duration.ofMinutes(5));
+        jwtAuthFilter = new JwtAuthFilter(new TokenAuthenticator(jwtService, compactTokenService, tokenRevocationService,
+                new RouteTable(), meterRegistry, new AuditLog(1024, AuditLog.OverflowPolicy.DROP, Duration.ZERO, 64,
+                Duration.ofMillis(10), List.of(), meterRegistry)), principalService);
+        String jwt = jwtService.generateToken(user);
+        VerifiedToken verified = jwtService.verifyToken(jwt);
+        authorizationHeader = "Bearer " + jwt;
+        compactAuthorizationHeader = "Bearer " + compactTokenService.issue(user.getId(), user.getAuthorities(),
+                verified.getId(), verified.getExpiration());
+    }
+
+    @Benchmark
+    public Authentication doFilter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/students");
+        request.addHeader("Authorization", authorizationHeader);
+        try {
+            jwtAuthFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Benchmark
+    public Authentication doFilterPublicRoute() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/auth/refresh");
+        request.addHeader("Authorization", authorizationHeader);
+        try {
+            jwtAuthFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Benchmark
+    public Authentication doFilterCompactToken() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/students");
+        request.addHeader("Authorization", compactAuthorizationHeader);
+        try {
+            jwtAuthFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
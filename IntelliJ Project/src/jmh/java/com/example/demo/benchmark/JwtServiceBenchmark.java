@@ -0,0 +1,83 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.security.service.JwtKeyManager;
+import com.example.demo.security.service.JwtService;
+import com.example.demo.security.service.VerifiedTokenCache;
+import com.example.demo.user.model.User;
+import com.example.demo.user.roles.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks token generation and verification in JwtService.
+ * The number of extra claims controls the size of the token that is signed and parsed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    // Base64 HMAC secret of the benchmark's signing keys
+    private static final String SECRET = "YmVuY2htYXJrLW9ubHktc2VjcmV0LWZvci1oczI1Ni1zaWduaW5nLWtleXM=";
+
+    // Number of extra claims added to the token
+    @Param({"0", "8", "32"})
+    public int claimCount;
+
+    private JwtKeyManager jwtKeyManager;
+    private JwtService jwtService;
+    private User user;
+    private Map<String, Object> extraClaims;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtKeyManager = new JwtKeyManager("HS256", SECRET, "", "", Duration.ZERO, Duration.ofMinutes(15));
+        jwtService = new JwtService(jwtKeyManager,
+                new VerifiedTokenCache(10_000, Duration.ofMinutes(10)), new SimpleMeterRegistry(), "admin@gmail.com");
+        user = new User("user", "user@gmail.com", "password", Role.ROLE_USER);
+
+        extraClaims = new HashMap<>();
+        for (int i = 0; i < claimCount; i++) {
+            extraClaims.put("claim" + i, "value-" + i);
+        }
+        extraClaims.put("roles", List.of(Role.ROLE_USER.name()));
+        token = jwtService.generateToken(extraClaims, user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(new HashMap<>(extraClaims), user);
+    }
+
+    @Benchmark
+    public Claims extractAllClaims() {
+        // Parsing with the key manager's parser bypasses the verified-token cache, so this measures a full parse and HMAC check
+        return jwtKeyManager.getParser().parseSignedClaims(token).getPayload();
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return jwtService.isTokenValid(token, user);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.security.service.JwtKeyManager;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks signing and verifying the same claims with each signature algorithm supported by JwtKeyManager,
+ * including the lookup of the verification key by the "kid" header.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtSignatureBenchmark {
+
+    // Base64 HMAC secret of the benchmark's signing keys
+    private static final String SECRET = "YmVuY2htYXJrLW9ubHktc2VjcmV0LWZvci1oczI1Ni1zaWduaW5nLWtleXM=";
+
+    @Param({"HS256", "RS256", "ES256", "EdDSA"})
+    public String algorithm;
+
+    private JwtKeyManager.SigningKey signingKey;
+    private JwtParser parser;
+    private String token;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Accept a second key, as during a rotation, so the kid lookup is part of the measurement: HMAC keys start with
+        // the key derived for the current period next to the shared secret's key, key pairs get a second public key
+        JwtKeyManager jwtKeyManager;
+        if ("HS256".equals(algorithm)) {
+            jwtKeyManager = new JwtKeyManager(algorithm, SECRET, "", "", Duration.ofHours(1), Duration.ofMinutes(15));
+        } else {
+            Path keyDirectory = Files.createTempDirectory("jwt-keys");
+            writeKeyPair(keyDirectory, "current", true);
+            writeKeyPair(keyDirectory, "next", false);
+            jwtKeyManager = new JwtKeyManager(algorithm, "", keyDirectory.toString(), "current", Duration.ZERO,
+                    Duration.ofMinutes(15));
+        }
+        signingKey = jwtKeyManager.getActiveKey();
+        parser = jwtKeyManager.getParser();
+        token = sign();
+    }
+
+    @Benchmark
+    public String sign() {
+        return Jwts.builder()
+                .header().keyId(signingKey.id()).and()
+                .subject("user@gmail.com")
+                .claim("roles", List.of("ROLE_USER"))
+                .issuedAt(new Date())
+                .signWith(signingKey.signingKey(), signingKey.algorithm())
+                .compact();
+    }
+
+    @Benchmark
+    public Claims verify() {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    private void writeKeyPair(Path keyDirectory, String keyId, boolean withPrivateKey) throws IOException {
+        KeyPair keyPair = ((SignatureAlgorithm) Jwts.SIG.get().forKey(algorithm)).keyPair().build();
+        writePem(keyDirectory.resolve(keyId + ".pub.pem"), "PUBLIC KEY", keyPair.getPublic().getEncoded());
+        if (withPrivateKey) {
+            writePem(keyDirectory.resolve(keyId + ".pem"), "PRIVATE KEY", keyPair.getPrivate().getEncoded());
+        }
+    }
+
+    private static void writePem(Path file, String type, byte[] der) throws IOException {
+        String base64 = Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(der);
+        Files.writeString(file, "-----BEGIN " + type + "-----\n" + base64 + "\n-----END " + type + "-----\n");
+    }
+}
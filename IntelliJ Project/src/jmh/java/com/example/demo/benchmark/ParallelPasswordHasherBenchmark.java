@@ -0,0 +1,61 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.user.service.ParallelPasswordHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmarks hashing one provisioning batch of passwords with a growing number of hashing threads.
+ * With BCrypt being CPU bound, the time per batch should fall roughly in proportion to the threads, up to the number
+ * of cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ParallelPasswordHasherBenchmark {
+
+    // Number of hashing threads
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    // Passwords per batch
+    @Param({"64"})
+    public int batchSize;
+
+    private ParallelPasswordHasher passwordHasher;
+    private List<String> passwords;
+
+    @Setup
+    public void setUp() {
+        passwordHasher = new ParallelPasswordHasher(new BCryptPasswordEncoder(8), threads);
+        passwords = IntStream.range(0, batchSize).mapToObj(i -> "password" + i).toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        passwordHasher.shutdown();
+    }
+
+    @Benchmark
+    public List<String> encodeAll() {
+        return passwordHasher.encodeAll(passwords);
+    }
+}
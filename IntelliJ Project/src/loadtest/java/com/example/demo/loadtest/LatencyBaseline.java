@@ -0,0 +1,112 @@
+package com.example.demo.loadtest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Stored results of earlier load-test runs, which new results are compared against.
+ * The file is a properties file with one entry per phase, stream and statistic, e.g. "reads.student.p99=4.10":
+ * latencies in milliseconds and throughput in requests per second. Entries missing from the file are not checked.
+ * A percentile is only checked when the run recorded enough requests for it to be more than its few slowest requests,
+ * e.g. 1000 for p99; below that it is the maximum under another name and varies too much between runs.
+ */
+final class LatencyBaseline {
+
+	// Statistics whose regressions fail the run, with the percentile of each latency
+	static final Map<String, Double> PERCENTILES = Map.of("p50", 50.0, "p99", 99.0, "p999", 99.9);
+	static final String THROUGHPUT = "throughput";
+
+	// Requests beyond a percentile needed to check it
+	private static final double MIN_SAMPLES_BEYOND_PERCENTILE = 10;
+
+	private final Path file;
+	private final Map<String, Double> values = new TreeMap<>();
+
+	private LatencyBaseline(Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * Reads a baseline file.
+	 * @param file Path of the file; a missing file is an empty baseline.
+	 * @return The baseline.
+	 * @throws IOException if the file cannot be read.
+	 */
+	static LatencyBaseline load(Path file) throws IOException {
+		LatencyBaseline baseline = new LatencyBaseline(file);
+		if (Files.exists(file)) {
+			Properties properties = new Properties();
+			try (Reader reader = Files.newBufferedReader(file)) {
+				properties.load(reader);
+			}
+			properties.forEach((key, value) -> baseline.values.put((String) key, Double.parseDouble((String) value)));
+		}
+		return baseline;
+	}
+
+	/**
+	 * Compares the results of a phase with the baseline.
+	 * A latency regresses when it exceeds the baseline by more than the tolerance plus a fixed slack, which keeps
+	 * sub-millisecond latencies from failing on noise; throughput regresses when it falls short by more than the tolerance.
+	 * @param phase Name of the phase.
+	 * @param results Results of the phase, by stream name.
+	 * @param tolerance Allowed relative regression, e.g. 0.25 for 25%.
+	 * @param slackMillis Allowed absolute latency regression on top of the tolerance.
+	 * @return A description of each regression; empty if there is none.
+	 */
+	List<String> regressions(String phase, Map<String, OpenLoadGenerator.Result> results, double tolerance, double slackMillis) {
+		List<String> regressions = new ArrayList<>();
+		results.forEach((stream, result) -> {
+			String prefix = phase + "." + stream + ".";
+			PERCENTILES.forEach((statistic, percentile) -> {
+				Double expected = values.get(prefix + statistic);
+				double measured = result.percentileMillis(percentile);
+				boolean enoughSamples = result.latencies().getTotalCount() * (100 - percentile) / 100 >= MIN_SAMPLES_BEYOND_PERCENTILE;
+				if (expected != null && enoughSamples && measured > expected * (1 + tolerance) + slackMillis) {
+					regressions.add(String.format(Locale.ROOT, "%s%s: %.2f ms, baseline %.2f ms", prefix, statistic, measured, expected));
+				}
+			});
+			Double expected = values.get(prefix + THROUGHPUT);
+			double measured = result.throughput();
+			if (expected != null && measured < expected * (1 - tolerance)) {
+				regressions.add(String.format(Locale.ROOT, "%s%s: %.1f req/s, baseline %.1f req/s", prefix, THROUGHPUT, measured, expected));
+			}
+		});
+		return regressions;
+	}
+
+	/**
+	 * Replaces the baseline of a phase with its results; call {@link #store()} to write them.
+	 * @param phase Name of the phase.
+	 * @param results Results of the phase, by stream name.
+	 */
+	void update(String phase, Map<String, OpenLoadGenerator.Result> results) {
+		results.forEach((stream, result) -> {
+			String prefix = phase + "." + stream + ".";
+			PERCENTILES.forEach((statistic, percentile) -> values.put(prefix + statistic, result.percentileMillis(percentile)));
+			values.put(prefix + THROUGHPUT, result.throughput());
+		});
+	}
+
+	/**
+	 * Writes the baseline back to its file, sorted by key.
+	 * @throws IOException if the file cannot be written.
+	 */
+	void store() throws IOException {
+		try (Writer writer = Files.newBufferedWriter(file)) {
+			writer.write("# Load-test baseline: latencies in ms, throughput in req/s. Regenerate with -Dloadtest.update-baseline=true\n");
+			for (Map.Entry<String, Double> entry : values.entrySet()) {
+				writer.write(String.format(Locale.ROOT, "%s=%.2f%n", entry.getKey(), entry.getValue()));
+			}
+		}
+	}
+}
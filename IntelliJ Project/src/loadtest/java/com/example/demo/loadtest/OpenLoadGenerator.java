@@ -0,0 +1,146 @@
+package com.example.demo.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+
+/**
+ * Open-model load generator: requests arrive at a fixed rate, whether or not earlier requests have completed.
+ * Each stream is paced by its own thread and sends asynchronously. Latency is measured from the time a request was
+ * due, not from the time it was sent, so when the server (or the generator itself) falls behind, the queueing delay
+ * is part of the recorded latency instead of being hidden by a lower send rate (coordinated omission).
+ */
+final class OpenLoadGenerator {
+
+	private final HttpClient client;
+
+	// Requests a stream may have outstanding; beyond it the pacer waits, and the wait counts towards latency
+	private final int maxInFlight;
+
+	/**
+	 * Creates a generator.
+	 * @param client Client the requests are sent with.
+	 * @param maxInFlight Requests a stream may have outstanding at once.
+	 */
+	OpenLoadGenerator(HttpClient client, int maxInFlight) {
+		this.client = client;
+		this.maxInFlight = maxInFlight;
+	}
+
+	/**
+	 * Runs the streams concurrently: first for the warm-up, whose requests are not recorded, then for the measurement.
+	 * @param streams Streams to run.
+	 * @param warmupNanos Duration of the warm-up.
+	 * @param durationNanos Duration of the measurement.
+	 * @return Result of each stream, by stream name.
+	 */
+	Map<String, Result> run(List<Stream> streams, long warmupNanos, long durationNanos) throws InterruptedException {
+		long measureStart = System.nanoTime() + warmupNanos;
+		long measureEnd = measureStart + durationNanos;
+		List<Pacer> pacers = new ArrayList<>();
+		for (Stream stream : streams) {
+			Pacer pacer = new Pacer(stream, measureStart, measureEnd);
+			pacer.thread.start();
+			pacers.add(pacer);
+		}
+		Map<String, Result> results = new LinkedHashMap<>();
+		for (Pacer pacer : pacers) {
+			pacer.thread.join();
+			// Wait for the outstanding requests, so the slowest ones are recorded too
+			if (!pacer.inFlight.tryAcquire(maxInFlight, 1, TimeUnit.MINUTES)) {
+				throw new IllegalStateException("Requests of " + pacer.stream.name() + " did not complete");
+			}
+			results.put(pacer.stream.name(), new Result(pacer.latencies.getIntervalHistogram(), pacer.errors.sum(),
+					durationNanos));
+		}
+		return results;
+	}
+
+	/**
+	 * Requests to one endpoint, sent at a fixed rate.
+	 * @param name Name of the stream, e.g. the endpoint.
+	 * @param ratePerSecond Requests sent per second.
+	 * @param request Builds the n-th request of the stream.
+	 * @param expectedStatus Status code of a successful response.
+	 */
+	record Stream(String name, double ratePerSecond, LongFunction<HttpRequest> request, int expectedStatus) {
+	}
+
+	/**
+	 * Outcome of a stream's measurement.
+	 * @param latencies Latency of the successful requests due during the measurement, in microseconds.
+	 * @param errors Requests due during the measurement that failed or returned an unexpected status.
+	 * @param durationNanos Duration of the measurement.
+	 */
+	record Result(Histogram latencies, long errors, long durationNanos) {
+
+		double throughput() {
+			return latencies.getTotalCount() * (double) TimeUnit.SECONDS.toNanos(1) / durationNanos;
+		}
+
+		double percentileMillis(double percentile) {
+			return latencies.getValueAtPercentile(percentile) / 1000.0;
+		}
+	}
+
+	private final class Pacer implements Runnable {
+
+		private final Stream stream;
+		private final long measureStart;
+		private final long measureEnd;
+		private final Thread thread;
+		private final Semaphore inFlight = new Semaphore(maxInFlight);
+		private final Recorder latencies = new Recorder(3);
+		private final LongAdder errors = new LongAdder();
+
+		private Pacer(Stream stream, long measureStart, long measureEnd) {
+			this.stream = stream;
+			this.measureStart = measureStart;
+			this.measureEnd = measureEnd;
+			this.thread = new Thread(this, "load-" + stream.name());
+		}
+
+		@Override
+		public void run() {
+			double interval = TimeUnit.SECONDS.toNanos(1) / stream.ratePerSecond();
+			long start = System.nanoTime();
+			for (long n = 0; ; n++) {
+				// Due times follow the schedule, however late the previous requests went out
+				long due = start + (long) (n * interval);
+				if (due >= measureEnd) {
+					return;
+				}
+				long wait;
+				while ((wait = due - System.nanoTime()) > 0) {
+					LockSupport.parkNanos(wait);
+				}
+				inFlight.acquireUninterruptibly();
+				boolean measured = due >= measureStart;
+				client.sendAsync(stream.request().apply(n), HttpResponse.BodyHandlers.discarding())
+						.whenComplete((response, failure) -> {
+							long latency = System.nanoTime() - due;
+							if (measured) {
+								if (failure == null && response.statusCode() == stream.expectedStatus()) {
+									latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(latency));
+								} else {
+									errors.increment();
+								}
+							}
+							inFlight.release();
+						});
+			}
+		}
+	}
+}
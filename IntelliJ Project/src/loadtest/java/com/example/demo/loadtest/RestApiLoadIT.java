@@ -0,0 +1,267 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.DemoApplication;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end load test of the REST API, failing when latency or throughput regresses past the stored baseline.
+ * The application runs against an embedded PostgreSQL, or against the database given with loadtest.datasource.url,
+ * which is dropped and recreated. Traffic follows an open model: every stream sends requests at a fixed rate, however
+ * slow the responses are, as independent clients would (see {@link OpenLoadGenerator}). The phases run one after another:
+ * <ul>
+ *     <li>login-storm: logins of the provisioned users, spread over all of them</li>
+ *     <li>reads: token-authenticated reads of random students</li>
+ *     <li>writes: registrations and batch imports of students</li>
+ *     <li>mixed: all of the above at once, each at a share of its own rate</li>
+ * </ul>
+ * Run with {@code mvn -Ploadtest verify}. The latency histogram of every phase and stream is written to target/loadtest.
+ * Optional: loadtest.profiles (application profiles, e.g. "perf"), loadtest.warmup-seconds (5),
+ * loadtest.duration-seconds (20), loadtest.rate.login (5), loadtest.rate.read (100), loadtest.rate.register (2),
+ * loadtest.rate.bulk (1) in requests per second, loadtest.mixed-share (0.5), loadtest.bulk-size (100),
+ * loadtest.users (100), loadtest.students (1000), loadtest.max-in-flight (256), loadtest.slack-millis (2).
+ */
+class RestApiLoadIT {
+
+	// Base64 HS256 secret of the test instances
+	private static final String JWT_SECRET = "dGVzdC1vbmx5LXNlY3JldC1mb3ItdGhlLWF1dGhlbnRpY2F0aW9uLWFwaS1pbnN0YW5jZXM=";
+
+	private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+	private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+	private static final String PASSWORD = "load-test-password";
+	private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+	private static final long WARMUP_NANOS = TimeUnit.SECONDS.toNanos(Long.getLong("loadtest.warmup-seconds", 5));
+	private static final long DURATION_NANOS = TimeUnit.SECONDS.toNanos(Long.getLong("loadtest.duration-seconds", 20));
+	private static final double MIXED_SHARE = Double.parseDouble(System.getProperty("loadtest.mixed-share", "0.5"));
+	private static final int BULK_SIZE = Integer.getInteger("loadtest.bulk-size", 100);
+	private static final int USERS = Integer.getInteger("loadtest.users", 100);
+	private static final int STUDENTS = Integer.getInteger("loadtest.students", 1000);
+
+	private static EmbeddedPostgres postgres;
+	private static ConfigurableApplicationContext context;
+
+	private static final HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(TIMEOUT)
+			.build();
+
+	private static String baseUrl;
+	private static String adminToken;
+	private static long[] studentIds;
+
+	@BeforeAll
+	static void startApplication() throws Exception {
+		String url = System.getProperty("loadtest.datasource.url", "");
+		String username = System.getProperty("loadtest.datasource.username", "");
+		String password = System.getProperty("loadtest.datasource.password", "");
+		if (url.isEmpty()) {
+			postgres = EmbeddedPostgres.builder().start();
+			url = postgres.getJdbcUrl("postgres", "postgres");
+			username = "postgres";
+		}
+		String profiles = System.getProperty("loadtest.profiles", "default");
+		context = new SpringApplicationBuilder(DemoApplication.class)
+				.profiles(profiles.split(","))
+				.run(
+						"--spring.datasource.url=" + url,
+						"--spring.datasource.username=" + username,
+						"--spring.datasource.password=" + password,
+						"--app.reactive.r2dbc.url=" + url.replaceFirst("^jdbc:", "r2dbc:"),
+						"--app.reactive.r2dbc.username=" + username,
+						"--app.reactive.r2dbc.password=" + password,
+						// Hash at the algorithm's minimum work factor, so logins cost the same on every run instead of what calibration picks
+						"--security.password.calibrate=false",
+						"--security.jwt.secret=" + JWT_SECRET,
+						// All requests come from one address and the login storm repeats emails
+						"--security.login-rate-limit.enabled=false",
+						"--security.revocation.file=",
+						"--audit.file.enabled=false",
+						"--server.port=0");
+		baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+		adminToken = logIn("admin@gmail.com", "admin");
+		provisionUsers();
+		importStudents();
+	}
+
+	@AfterAll
+	static void stopApplication() throws IOException {
+		if (context != null) {
+			context.close();
+		}
+		if (postgres != null) {
+			postgres.close();
+		}
+	}
+
+	@Test
+	void staysWithinBaseline() throws Exception {
+		double loginRate = Double.parseDouble(System.getProperty("loadtest.rate.login", "5"));
+		double readRate = Double.parseDouble(System.getProperty("loadtest.rate.read", "100"));
+		double registerRate = Double.parseDouble(System.getProperty("loadtest.rate.register", "2"));
+		double bulkRate = Double.parseDouble(System.getProperty("loadtest.rate.bulk", "1"));
+
+		Map<String, List<OpenLoadGenerator.Stream>> phases = new LinkedHashMap<>();
+		phases.put("login-storm", List.of(authenticate(loginRate)));
+		phases.put("reads", List.of(readStudent(readRate)));
+		phases.put("writes", List.of(register("writes", registerRate), importStudentBatch(bulkRate)));
+		phases.put("mixed", List.of(
+				authenticate(loginRate * MIXED_SHARE),
+				readStudent(readRate * MIXED_SHARE),
+				register("mixed", registerRate * MIXED_SHARE),
+				importStudentBatch(bulkRate * MIXED_SHARE)));
+
+		LatencyBaseline baseline = LatencyBaseline.load(Path.of(System.getProperty("loadtest.baseline", "src/loadtest/baseline.properties")));
+		double tolerance = Double.parseDouble(System.getProperty("loadtest.tolerance", "0.5"));
+		double slackMillis = Double.parseDouble(System.getProperty("loadtest.slack-millis", "2"));
+		boolean updateBaseline = Boolean.getBoolean("loadtest.update-baseline");
+		Path reportDirectory = Files.createDirectories(Path.of(System.getProperty("loadtest.report-directory", "target/loadtest")));
+
+		OpenLoadGenerator generator = new OpenLoadGenerator(client, Integer.getInteger("loadtest.max-in-flight", 256));
+		List<String> failures = new ArrayList<>();
+		for (Map.Entry<String, List<OpenLoadGenerator.Stream>> phase : phases.entrySet()) {
+			Map<String, OpenLoadGenerator.Result> results = generator.run(phase.getValue(), WARMUP_NANOS, DURATION_NANOS);
+			results.forEach((stream, result) -> {
+				System.out.printf("%-12s %-14s %7.1f req/s  p50 %8.2f ms  p99 %8.2f ms  p999 %8.2f ms  max %8.2f ms  errors %d%n",
+						phase.getKey(), stream, result.throughput(), result.percentileMillis(50), result.percentileMillis(99),
+						result.percentileMillis(99.9), result.latencies().getMaxValue() / 1000.0, result.errors());
+				writeHistogram(reportDirectory.resolve(phase.getKey() + "-" + stream + ".hgrm"), result);
+				if (result.errors() > 0) {
+					failures.add(phase.getKey() + "." + stream + ": " + result.errors() + " failed requests");
+				}
+			});
+			if (updateBaseline) {
+				baseline.update(phase.getKey(), results);
+			} else {
+				failures.addAll(baseline.regressions(phase.getKey(), results, tolerance, slackMillis));
+			}
+		}
+		if (updateBaseline) {
+			baseline.store();
+		}
+		assertTrue(failures.isEmpty(), "Load test regressed:\n" + String.join("\n", failures));
+	}
+
+	private static OpenLoadGenerator.Stream authenticate(double rate) {
+		return new OpenLoadGenerator.Stream("authenticate", rate, n -> post("/api/v1/auth/authenticate", null, "application/json",
+				credentials("load-user-" + (n % USERS) + "@example.com", PASSWORD)), 200);
+	}
+
+	private static OpenLoadGenerator.Stream readStudent(double rate) {
+		return new OpenLoadGenerator.Stream("student", rate, n -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/students/"
+						+ studentIds[ThreadLocalRandom.current().nextInt(studentIds.length)]))
+				.header("Authorization", "Bearer " + adminToken)
+				.timeout(TIMEOUT)
+				.build(), 200);
+	}
+
+	private static OpenLoadGenerator.Stream register(String phase, double rate) {
+		return new OpenLoadGenerator.Stream("register", rate, n -> post("/api/v1/auth/register", null, "application/json",
+				"{\"name\":\"Load User\",\"email\":\"load-" + phase + "-" + n + "@example.com\",\"password\":\"" + PASSWORD + "\"}"), 200);
+	}
+
+	private static OpenLoadGenerator.Stream importStudentBatch(double rate) {
+		return new OpenLoadGenerator.Stream("student-batch", rate, n -> post("/api/v1/students/batch", adminToken,
+				"application/x-ndjson", students(BULK_SIZE)), 200);
+	}
+
+	/**
+	 * Creates the users of the login storm in one batch.
+	 */
+	private static void provisionUsers() throws Exception {
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < USERS; i++) {
+			body.append("{\"name\":\"Load User\",\"email\":\"load-user-").append(i).append("@example.com\",\"password\":\"")
+					.append(PASSWORD).append("\"}\n");
+		}
+		HttpResponse<String> response = client.send(post("/api/v1/users/batch", adminToken, "application/x-ndjson",
+				body.toString()), HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, response.statusCode());
+		assertFalse(response.body().contains("\"status\":\"FAILED\""), "users could not be provisioned");
+	}
+
+	/**
+	 * Imports the students read in the reads phase and keeps their ids.
+	 */
+	private static void importStudents() throws Exception {
+		HttpResponse<String> response = client.send(post("/api/v1/students/batch", adminToken, "application/x-ndjson",
+				students(STUDENTS)), HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, response.statusCode());
+		Matcher matcher = ID.matcher(response.body());
+		List<Long> ids = new ArrayList<>();
+		while (matcher.find()) {
+			ids.add(Long.parseLong(matcher.group(1)));
+		}
+		assertEquals(STUDENTS, ids.size());
+		studentIds = ids.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	private static String logIn(String email, String password) throws Exception {
+		HttpResponse<String> response = client.send(post("/api/v1/auth/authenticate", null, "application/json",
+				credentials(email, password)), HttpResponse.BodyHandlers.ofString());
+		Matcher matcher = TOKEN.matcher(response.body());
+		assertTrue(matcher.find(), "login of " + email + " failed");
+		return matcher.group(1);
+	}
+
+	private static HttpRequest post(String path, String token, String contentType, String body) {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+				.header("Content-Type", contentType)
+				.timeout(TIMEOUT)
+				.POST(HttpRequest.BodyPublishers.ofString(body));
+		if (token != null) {
+			request.header("Authorization", "Bearer " + token);
+		}
+		return request.build();
+	}
+
+	private static String credentials(String email, String password) {
+		return "{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}";
+	}
+
+	private static String students(int count) {
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			body.append("{\"name\":\"Load Student ").append(i).append("\"}\n");
+		}
+		return body.toString();
+	}
+
+	/**
+	 * Writes the percentile distribution of a result in milliseconds, in the format HdrHistogram's plotter reads.
+	 */
+	private static void writeHistogram(Path file, OpenLoadGenerator.Result result) {
+		try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+			result.latencies().outputPercentileDistribution(out, 1000.0);
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot write " + file, e);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.example.demo.audit.model;
+
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Reusable batch of audit events handed from the audit log to its sinks.
+ * Events are held in parallel arrays that are allocated once, so collecting a batch allocates nothing.
+ * Every event is written as one line of PostgreSQL's COPY text format: tab-separated columns, with backslash escapes for
+ * tabs, line breaks and backslashes, and \N for a missing value. The same line is used in the log file, so user input
+ * such as an email cannot forge additional lines.
+ */
+public final class AuditBatch {
+
+    // Longest subject and client address written; longer values are cut, so every line has a bounded size
+    public static final int MAX_SUBJECT_LENGTH = 254;
+    public static final int MAX_ADDRESS_LENGTH = 64;
+
+    // Epoch milliseconds at which the events occurred
+    private final long[] timestamps;
+
+    // Kinds of the events
+    private final AuditEventType[] types;
+
+    // Emails the events concern, or null if unknown
+    private final String[] subjects;
+
+    // Addresses of the clients, or null if unknown
+    private final String[] clientAddresses;
+
+    // Number of events in the batch
+    private int size;
+
+    /**
+     * Creates an empty batch.
+     * @param capacity Maximum number of events in the batch.
+     */
+    public AuditBatch(int capacity) {
+        this.timestamps = new long[capacity];
+        this.types = new AuditEventType[capacity];
+        this.subjects = new String[capacity];
+        this.clientAddresses = new String[capacity];
+    }
+
+    /**
+     * Adds an event to the batch.
+     * @param timestamp Epoch milliseconds at which the event occurred.
+     * @param type Kind of the event.
+     * @param subject Email the event concerns, or null if unknown.
+     * @param clientAddress Address of the client, or null if unknown.
+     */
+    public void add(long timestamp, AuditEventType type, String subject, String clientAddress) {
+        timestamps[size] = timestamp;
+        types[size] = type;
+        subjects[size] = subject;
+        clientAddresses[size] = clientAddress;
+        size++;
+    }
+
+    /**
+     * Empties the batch, dropping its references to the events.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            subjects[i] = null;
+            clientAddresses[i] = null;
+        }
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == timestamps.length;
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    public AuditEventType getType(int index) {
+        return types[index];
+    }
+
+    public String getSubject(int index) {
+        return subjects[index];
+    }
+
+    public String getClientAddress(int index) {
+        return clientAddresses[index];
+    }
+
+    /**
+     * Appends an event as one line of COPY text format: time, type, subject and client address.
+     * @param index Position of the event in the batch.
+     * @param line Builder the line is appended to, including its line break.
+     */
+    public void appendLine(int index, StringBuilder line) {
+        DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(timestamps[index]), line);
+        line.append('\t').append(types[index].name()).append('\t');
+        appendValue(subjects[index], MAX_SUBJECT_LENGTH, line);
+        line.append('\t');
+        appendValue(clientAddresses[index], MAX_ADDRESS_LENGTH, line);
+        line.append('\n');
+    }
+
+    private static void appendValue(String value, int maxLength, StringBuilder line) {
+        if (value == null) {
+            line.append("\\N");
+            return;
+        }
+        int length = Math.min(value.length(), maxLength);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> line.append("\\\\");
+                case '\t' -> line.append("\\t");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                default -> line.append(c < ' ' ? ' ' : c);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.demo.audit.model;
+
+/**
+ * Kinds of events recorded in the authentication audit log.
+ */
+public enum AuditEventType {
+    // A user registered
+    REGISTERED,
+    // A registration was rejected, e.g. because the email is in use
+    REGISTRATION_FAILED,
+    // A user logged in with the right password
+    LOGIN_SUCCEEDED,
+    // A login was rejected, e.g. for a wrong password or an unknown email
+    LOGIN_FAILED,
+    // A login was rejected before the password was checked, because of too many attempts
+    LOGIN_RATE_LIMITED,
+    // A token could not be parsed or its signature did not verify
+    TOKEN_INVALID,
+    // A revoked token was presented
+    TOKEN_REVOKED,
+    // A valid token was rejected, e.g. because its user no longer exists
+    TOKEN_REJECTED,
+    // A valid token was presented for a route its user has no authority for
+    ACCESS_FORBIDDEN
+}
@@ -0,0 +1,285 @@
+package com.example.demo.audit.service;
+
+import com.example.demo.audit.model.AuditBatch;
+import com.example.demo.audit.model.AuditEventType;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous audit log of authentication events.
+ * Request threads publish events into a fixed-size ring buffer of preallocated slots: a slot is claimed with one
+ * compare-and-set on the claim sequence, filled, and marked published with a release store, so publishing takes no lock
+ * and allocates nothing; the subject and address are references to strings the request already holds. A single writer
+ * thread drains published slots in order into a batch and hands it to every sink, so the sinks see few large writes
+ * instead of one per login.
+ * When the buffer is full, the overflow policy decides: drop the event, or wait up to the block timeout for the writer
+ * to catch up and drop it then. Dropped events, and events a sink failed to write, are counted.
+ * Without sinks the audit log is disabled and publishing returns straight away.
+ */
+@Slf4j
+@Service
+public class AuditLog {
+
+    /**
+     * What publishing does when the ring buffer is full.
+     */
+    public enum OverflowPolicy {
+        // Drop the event, so request threads never wait for the writer
+        DROP,
+        // Wait for a free slot up to the block timeout, then drop the event
+        BLOCK
+    }
+
+    // Number of slots, a power of two, and the mask mapping a sequence to its slot
+    private final int capacity;
+    private final int mask;
+
+    // Slots of the ring buffer; slot i holds the event of every sequence s with s & mask == i
+    private final long[] timestamps;
+    private final AuditEventType[] types;
+    private final String[] subjects;
+    private final String[] clientAddresses;
+
+    // Sequence each slot was last published with; a slot is ready for sequence s once it holds s
+    private final AtomicLongArray published;
+
+    // Next sequence to claim, and next sequence the writer reads; claimed - consumed is the number of used slots
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+
+    // What publishing does when the buffer is full, and how long it may wait
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+
+    // How long the writer sleeps when the buffer is empty
+    private final long idleNanos;
+
+    // Batch the writer collects events into, reused for every write
+    private final AuditBatch batch;
+
+    // Destinations of the events
+    private final List<AuditSink> sinks;
+
+    // Events dropped on overflow, written by every sink, and lost to a failing sink
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    // Thread draining the buffer into the sinks
+    private Thread writer;
+
+    // Cleared on shutdown to stop the writer once the buffer is drained
+    private volatile boolean running;
+
+    /**
+     * Creates the audit log and registers its metrics.
+     * @param bufferSize Minimum number of events the ring buffer holds; rounded up to a power of two.
+     * @param overflowPolicy What publishing does when the buffer is full.
+     * @param blockTimeout Longest wait for a free slot under the BLOCK policy.
+     * @param batchSize Maximum number of events written to the sinks at once.
+     * @param flushInterval How long the writer sleeps when the buffer is empty.
+     * @param sinks Destinations of the events; none disables the audit log.
+     * @param meterRegistry Registry the audit metrics are published to.
+     */
+    public AuditLog(@Value("${audit.buffer-size:65536}") int bufferSize,
+                    @Value("${audit.overflow-policy:drop}") OverflowPolicy overflowPolicy,
+                    @Value("${audit.block-timeout:PT0.005S}") Duration blockTimeout,
+                    @Value("${audit.batch-size:1024}") int batchSize,
+                    @Value("${audit.flush-interval:PT0.01S}") Duration flushInterval,
+                    List<AuditSink> sinks,
+                    MeterRegistry meterRegistry) {
+        this.capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        this.mask = capacity - 1;
+        this.timestamps = new long[capacity];
+        this.types = new AuditEventType[capacity];
+        this.subjects = new String[capacity];
+        this.clientAddresses = new String[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutNanos = blockTimeout.toNanos();
+        this.idleNanos = Math.max(1, flushInterval.toNanos());
+        this.batch = new AuditBatch(Math.min(batchSize, capacity));
+        this.sinks = List.copyOf(sinks);
+
+        FunctionCounter.builder("audit.events", dropped, LongAdder::sum)
+                .description("Audit events by outcome")
+                .tag("outcome", "dropped")
+                .register(meterRegistry);
+        FunctionCounter.builder("audit.events", written, AtomicLong::get)
+                .description("Audit events by outcome")
+                .tag("outcome", "written")
+                .register(meterRegistry);
+        FunctionCounter.builder("audit.events", failed, AtomicLong::get)
+                .description("Audit events by outcome")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+        Gauge.builder("audit.buffer.depth", this, AuditLog::getDepth)
+                .description("Audit events waiting to be written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the writer thread, unless there are no sinks.
+     */
+    @PostConstruct
+    public void start() {
+        if (sinks.isEmpty()) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drain, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stops the writer once it has written the events published so far.
+     * @throws InterruptedException if interrupted while waiting for the writer.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Records an event. Never blocks under the DROP policy, and never allocates.
+     * @param type Kind of the event.
+     * @param subject Email the event concerns, or null if unknown.
+     * @param clientAddress Address of the client, or null if unknown.
+     */
+    public void publish(AuditEventType type, String subject, String clientAddress) {
+        if (!running) {
+            return;
+        }
+        long sequence = claim();
+        if (sequence < 0) {
+            dropped.increment();
+            return;
+        }
+        int slot = (int) sequence & mask;
+        timestamps[slot] = System.currentTimeMillis();
+        types[slot] = type;
+        subjects[slot] = subject;
+        clientAddresses[slot] = clientAddress;
+        published.setRelease(slot, sequence);
+    }
+
+    /**
+     * Returns the number of events dropped because the buffer was full.
+     * @return Dropped events since startup.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of events written by every sink.
+     * @return Written events since startup.
+     */
+    public long getWritten() {
+        return written.get();
+    }
+
+    /**
+     * Returns the number of events waiting to be written.
+     * @return Events in the buffer.
+     */
+    public long getDepth() {
+        return claimed.get() - consumed.get();
+    }
+
+    /**
+     * Claims the next free slot, applying the overflow policy while the buffer is full.
+     * @return Sequence of the claimed slot, or -1 if the event must be dropped.
+     */
+    private long claim() {
+        long deadline = 0;
+        while (true) {
+            long sequence = claimed.get();
+            if (sequence - consumed.get() < capacity) {
+                if (claimed.compareAndSet(sequence, sequence + 1)) {
+                    return sequence;
+                }
+            } else if (overflowPolicy == OverflowPolicy.DROP) {
+                return -1;
+            } else if (deadline == 0) {
+                deadline = System.nanoTime() + blockTimeoutNanos;
+            } else if (System.nanoTime() - deadline >= 0) {
+                return -1;
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Loop of the writer thread: collects published events into batches and writes them, sleeping while the buffer is
+     * empty. After shutdown it keeps going until the buffer is empty.
+     */
+    private void drain() {
+        while (true) {
+            long next = consumed.get();
+            while (!batch.isFull()) {
+                int slot = (int) next & mask;
+                if (published.getAcquire(slot) != next) {
+                    break;
+                }
+                batch.add(timestamps[slot], types[slot], subjects[slot], clientAddresses[slot]);
+                subjects[slot] = null;
+                clientAddresses[slot] = null;
+                next++;
+            }
+            // Free the slots before writing, so publishers can use them while the sinks work
+            consumed.set(next);
+
+            if (batch.size() > 0) {
+                write();
+            } else if (running) {
+                LockSupport.parkNanos(idleNanos);
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void write() {
+        boolean allWritten = true;
+        for (AuditSink sink : sinks) {
+            try {
+                sink.write(batch);
+            } catch (IOException | RuntimeException e) {
+                allWritten = false;
+                log.warn("Audit sink {} could not write {} events", sink.getClass().getSimpleName(), batch.size(), e);
+            }
+        }
+        if (allWritten) {
+            written.addAndGet(batch.size());
+        } else {
+            failed.addAndGet(batch.size());
+        }
+        batch.clear();
+    }
+}
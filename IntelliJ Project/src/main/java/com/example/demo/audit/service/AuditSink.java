@@ -0,0 +1,19 @@
+package com.example.demo.audit.service;
+
+import com.example.demo.audit.model.AuditBatch;
+
+import java.io.IOException;
+
+/**
+ * Destination of the audit log. Called from the single writer thread of the audit log only, so implementations need
+ * no synchronization.
+ */
+public interface AuditSink {
+
+    /**
+     * Writes a batch of events.
+     * @param batch Events to write; only valid during the call.
+     * @throws IOException if the events could not be written; they are then counted as failed.
+     */
+    void write(AuditBatch batch) throws IOException;
+}
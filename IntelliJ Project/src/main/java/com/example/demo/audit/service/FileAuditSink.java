@@ -0,0 +1,126 @@
+package com.example.demo.audit.service;
+
+import com.example.demo.audit.model.AuditBatch;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Audit sink appending events to a local file, one line per event, with one write per batch.
+ * When the file would grow past its maximum size it is renamed with the current time appended, e.g.
+ * audit.log.1700000000000, and a new file is started; only the newest rotated files are kept.
+ * Selected with audit.file.enabled=true (the default).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "audit.file.enabled", havingValue = "true", matchIfMissing = true)
+public class FileAuditSink implements AuditSink {
+
+    // File the events are appended to
+    private final Path file;
+
+    // Size at which the file is rotated
+    private final long maxBytes;
+
+    // Number of rotated files kept
+    private final int maxFiles;
+
+    // Whether every write is forced to the storage device before the writer continues
+    private final boolean fsync;
+
+    // Builder the lines of a batch are collected in, reused for every write
+    private final StringBuilder lines = new StringBuilder();
+
+    // Channel appending to the file, and the size of the file
+    private FileChannel channel;
+    private long size;
+
+    /**
+     * Creates the sink and opens the file for appending.
+     * @param file Path of the audit file.
+     * @param maxSize Size at which the file is rotated.
+     * @param maxFiles Number of rotated files kept.
+     * @param fsync Whether every write is forced to the storage device.
+     * @throws IOException if the file cannot be opened.
+     */
+    public FileAuditSink(@Value("${audit.file.path:audit.log}") String file,
+                         @Value("${audit.file.max-size:64MB}") DataSize maxSize,
+                         @Value("${audit.file.max-files:10}") int maxFiles,
+                         @Value("${audit.file.fsync:false}") boolean fsync) throws IOException {
+        this.file = Path.of(file).toAbsolutePath();
+        this.maxBytes = maxSize.toBytes();
+        this.maxFiles = maxFiles;
+        this.fsync = fsync;
+        open();
+    }
+
+    @Override
+    public void write(AuditBatch batch) throws IOException {
+        lines.setLength(0);
+        for (int i = 0; i < batch.size(); i++) {
+            batch.appendLine(i, lines);
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        if (size > 0 && size + bytes.remaining() > maxBytes) {
+            rotate();
+        }
+        while (bytes.hasRemaining()) {
+            size += channel.write(bytes);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Closes the audit file.
+     * @throws IOException if the file cannot be closed.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void open() throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+    }
+
+    /**
+     * Renames the full file, starts a new one and deletes the oldest rotated files beyond the number kept.
+     */
+    private void rotate() throws IOException {
+        channel.close();
+        Files.move(file, file.resolveSibling(file.getFileName() + "." + System.currentTimeMillis()));
+        open();
+
+        String prefix = file.getFileName() + ".";
+        List<Path> rotated;
+        try (Stream<Path> siblings = Files.list(file.getParent())) {
+            rotated = siblings
+                    .filter(path -> path.getFileName().toString().startsWith(prefix))
+                    .sorted()
+                    .toList();
+        }
+        for (int i = 0; i < rotated.size() - maxFiles; i++) {
+            Files.deleteIfExists(rotated.get(i));
+        }
+        log.info("Rotated audit file {}", file);
+    }
+}
@@ -7,11 +7,12 @@ import lombok.NoArgsConstructor;
 
 /**
  * Represents the response payload for successful authentication.
- * Contains the JWT token for the authenticated user.
+ * Contains the JWT token for the authenticated user and the refresh token used to renew it.
  */
 @Data
 @Builder
 @AllArgsConstructor @NoArgsConstructor
 public class AuthenticationReponse {
     private String token;
+    private String refreshToken;
 }
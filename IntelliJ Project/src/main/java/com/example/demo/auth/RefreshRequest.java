@@ -0,0 +1,18 @@
+package com.example.demo.auth;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Represents the request payload for renewing a session.
+ * Contains the refresh token issued by the previous authentication or refresh.
+ */
+@Data
+@Builder
+@AllArgsConstructor @NoArgsConstructor
+public class RefreshRequest {
+
+    private String refreshToken;
+}
@@ -2,20 +2,31 @@ package com.example.demo.auth.controller;
 
 import com.example.demo.auth.AuthenticationReponse;
 import com.example.demo.auth.AuthenticationRequest;
+import com.example.demo.auth.RefreshRequest;
 import com.example.demo.auth.service.AuthenticationService;
 import com.example.demo.auth.RegisterRequest;
+import com.example.demo.security.service.CompactTokenService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Controller responsible for handling authentication-related requests.
- * Provides endpoints for user registration and authentication.
+ * Provides endpoints for user registration, authentication, session renewal, logout and compact token issuance.
+ * Registration and authentication complete asynchronously, so request threads are released while passwords are hashed;
+ * session renewal, logout and compact token issuance hash no password and complete synchronously.
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/v1/auth")
 @RequiredArgsConstructor
 public class AuthenticationController {
@@ -23,23 +34,72 @@ public class AuthenticationController {
     // Service to handle authentication operations
     private final AuthenticationService authenticationService;
 
+    // Service issuing compact tokens, used to check whether the format is enabled
+    private final CompactTokenService compactTokenService;
+
     /**
      * Endpoint to register a new user.
      * @param request Contains user registration details.
-     * @return Authentication response with JWT token.
+     * @param servletRequest The HTTP request, used for the client address.
+     * @return Future completed with the authentication response with JWT token.
      */
     @PostMapping(path =  "/register")
-    public ResponseEntity<AuthenticationReponse> register(@RequestBody RegisterRequest request) {
-        return ResponseEntity.ok(authenticationService.register(request));
+    public CompletableFuture<ResponseEntity<AuthenticationReponse>> register(@RequestBody RegisterRequest request,
+                                                                            HttpServletRequest servletRequest) {
+        return authenticationService.register(request, servletRequest.getRemoteAddr()).thenApply(ResponseEntity::ok);
     }
 
     /**
      * Endpoint to authenticate an existing user.
      * @param request Contains user authentication details.
-     * @return Authentication response with JWT token.
+     * @param servletRequest The HTTP request, used for the client address.
+     * @return Future completed with the authentication response with JWT token.
      */
     @PostMapping(path = "/authenticate")
-    public ResponseEntity<AuthenticationReponse> authenticate(@RequestBody AuthenticationRequest request) {
-        return ResponseEntity.ok(authenticationService.authenticate(request));
+    public CompletableFuture<ResponseEntity<AuthenticationReponse>> authenticate(@RequestBody AuthenticationRequest request,
+                                                                                HttpServletRequest servletRequest) {
+        return authenticationService.authenticate(request, servletRequest.getRemoteAddr()).thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Endpoint to renew a session with a refresh token, without checking the password again.
+     * @param request Contains the refresh token.
+     * @return Authentication response with a new JWT token and refresh token.
+     */
+    @PostMapping(path = "/refresh")
+    public ResponseEntity<AuthenticationReponse> refresh(@RequestBody RefreshRequest request) {
+        return ResponseEntity.ok(authenticationService.refresh(request));
+    }
+
+    /**
+     * Endpoint to end a session, revoking its JWT token before it expires.
+     * @param authHeader The "Authorization" header carrying the JWT token as "Bearer <token>".
+     * @param request Optionally contains the refresh token of the session, which is used up as well.
+     * @return Empty response.
+     */
+    @PostMapping(path = "/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader,
+                                       @RequestBody(required = false) RefreshRequest request) {
+        if (!authHeader.startsWith("Bearer ")) {
+            return ResponseEntity.badRequest().build();
+        }
+        authenticationService.logout(authHeader.substring(7), request);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Endpoint to exchange a JWT token for a compact token used on internal service-to-service calls.
+     * @param authHeader The "Authorization" header carrying the JWT token as "Bearer <token>".
+     * @return Authentication response with the compact token, or 404 if compact tokens are disabled.
+     */
+    @PostMapping(path = "/compact-token")
+    public ResponseEntity<AuthenticationReponse> compactToken(@RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader) {
+        if (!compactTokenService.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!authHeader.startsWith("Bearer ")) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(authenticationService.issueCompactToken(authHeader.substring(7)));
     }
 }
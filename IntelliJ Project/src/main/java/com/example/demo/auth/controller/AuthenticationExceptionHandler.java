@@ -0,0 +1,77 @@
+package com.example.demo.auth.controller;
+
+import com.example.demo.auth.exception.EmailAlreadyInUseException;
+import com.example.demo.auth.exception.HashingCapacityExceededException;
+import com.example.demo.auth.exception.InvalidRefreshTokenException;
+import com.example.demo.auth.exception.LoginRateLimitExceededException;
+import io.jsonwebtoken.JwtException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Translates authentication errors into HTTP responses.
+ */
+@RestControllerAdvice
+public class AuthenticationExceptionHandler {
+
+    /**
+     * Responds with 503 and a Retry-After hint when the password hashing executor is saturated.
+     * @param exception The rejection raised by the executor.
+     * @return Response telling the client to retry later.
+     */
+    @ExceptionHandler(HashingCapacityExceededException.class)
+    public ResponseEntity<String> handleHashingCapacityExceeded(HashingCapacityExceededException exception) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(exception.getMessage());
+    }
+
+    /**
+     * Responds with 429 and a Retry-After hint when a client has made too many login attempts.
+     * @param exception The rejection raised by the rate limiter.
+     * @return Response telling the client when to try again.
+     */
+    @ExceptionHandler(LoginRateLimitExceededException.class)
+    public ResponseEntity<String> handleLoginRateLimitExceeded(LoginRateLimitExceededException exception) {
+        long retryAfterSeconds = Math.max(1, (exception.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(exception.getMessage());
+    }
+
+    /**
+     * Responds with 409 when a user registers with an email that is already in use.
+     * @param exception The conflict raised on registration.
+     * @return Response telling the client the email is taken.
+     */
+    @ExceptionHandler(EmailAlreadyInUseException.class)
+    public ResponseEntity<String> handleEmailAlreadyInUse(EmailAlreadyInUseException exception) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(exception.getMessage());
+    }
+
+    /**
+     * Responds with 401 when a refresh token cannot be used.
+     * @param exception The error raised for the refresh token.
+     * @return Response telling the client to authenticate again.
+     */
+    @ExceptionHandler(InvalidRefreshTokenException.class)
+    public ResponseEntity<String> handleInvalidRefreshToken(InvalidRefreshTokenException exception) {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(exception.getMessage());
+    }
+
+    /**
+     * Responds with 401 when a JWT token passed to an authentication endpoint is invalid or has expired.
+     * @param exception The error raised while verifying the token.
+     * @return Response telling the client the token was rejected.
+     */
+    @ExceptionHandler(JwtException.class)
+    public ResponseEntity<String> handleInvalidJwt(JwtException exception) {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body("Token is invalid or expired.");
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.demo.auth.exception;
+
+/**
+ * Thrown when a user registers with an email that already belongs to another user.
+ * Detected by the unique email index when the user is inserted, so concurrent registrations cannot both succeed.
+ */
+public class EmailAlreadyInUseException extends RuntimeException {
+
+    public EmailAlreadyInUseException() {
+        super("Email is already in use.");
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.demo.auth.exception;
+
+/**
+ * Thrown when the password hashing executor cannot accept more work.
+ * Rejecting early keeps login storms from queueing unbounded work behind the hashing threads.
+ */
+public class HashingCapacityExceededException extends RuntimeException {
+
+    public HashingCapacityExceededException() {
+        super("Password hashing capacity exceeded, retry later.");
+    }
+}
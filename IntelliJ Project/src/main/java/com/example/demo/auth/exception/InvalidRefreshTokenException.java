@@ -0,0 +1,11 @@
+package com.example.demo.auth.exception;
+
+/**
+ * Thrown when a refresh token is unknown, expired or has already been used.
+ */
+public class InvalidRefreshTokenException extends RuntimeException {
+
+    public InvalidRefreshTokenException() {
+        super("Refresh token is invalid or expired.");
+    }
+}
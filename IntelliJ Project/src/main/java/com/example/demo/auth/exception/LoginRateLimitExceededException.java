@@ -0,0 +1,21 @@
+package com.example.demo.auth.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a client has used up its login attempts for an email or for its address.
+ * Raised before the password is checked, so rejected attempts cost no hashing.
+ */
+@Getter
+public class LoginRateLimitExceededException extends RuntimeException {
+
+    // Time until the next attempt is allowed
+    private final Duration retryAfter;
+
+    public LoginRateLimitExceededException(Duration retryAfter) {
+        super("Too many login attempts, retry later.");
+        this.retryAfter = retryAfter;
+    }
+}
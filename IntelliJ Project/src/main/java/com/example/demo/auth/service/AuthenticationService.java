@@ -1,24 +1,51 @@
 package com.example.demo.auth.service;
 
+import com.example.demo.audit.model.AuditEventType;
+import com.example.demo.audit.service.AuditLog;
 import com.example.demo.auth.AuthenticationReponse;
 import com.example.demo.auth.AuthenticationRequest;
+import com.example.demo.auth.RefreshRequest;
 import com.example.demo.auth.RegisterRequest;
+import com.example.demo.auth.exception.EmailAlreadyInUseException;
+import com.example.demo.auth.exception.HashingCapacityExceededException;
+import com.example.demo.auth.exception.InvalidRefreshTokenException;
+import com.example.demo.auth.exception.LoginRateLimitExceededException;
+import com.example.demo.security.service.CompactTokenService;
 import com.example.demo.security.service.JwtService;
+import com.example.demo.security.service.PrincipalService;
+import com.example.demo.security.service.RefreshTokenStore;
+import com.example.demo.security.service.TokenRevocationService;
 import com.example.demo.user.model.User;
 import com.example.demo.user.repository.UserRepository;
 import com.example.demo.user.roles.Role;
-import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
 /**
  * Service responsible for user registration and authentication.
  * Handles the logic for registering a new user and authenticating existing users.
+ * Every registration and login attempt is recorded in the audit log.
+ * Only the password hashing and checks run on the bounded hashing executor: users are looked up by the caller, and the
+ * database work after a hash (the insert of a registration, the tokens of a login) runs on the application task
+ * executor, so database latency never holds a hashing thread.
  */
 @Service
-@RequiredArgsConstructor
 public class AuthenticationService {
 
     // Repository to interact with user data in the database
@@ -27,53 +54,406 @@ public class AuthenticationService {
     private final PasswordEncoder passwordEncoder;
     // Service to handle JWT operations
     private final JwtService jwtService;
-    // Manager to handle authentication operations
-    private final AuthenticationManager authenticationManager;
+    // Service holding cached principals, which must be evicted when a user changes
+    private final PrincipalService principalService;
+    // Bounded executor running the password hashing work off the request threads
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    // Executor running the blocking database work that follows a password hash
+    private final Executor blockingExecutor;
+    // Store of the refresh tokens used to renew sessions without a password check
+    private final RefreshTokenStore refreshTokenStore;
+    // Service tracking tokens revoked before they expired
+    private final TokenRevocationService tokenRevocationService;
+    // Limiter of login attempts per email and client address
+    private final LoginRateLimiter loginRateLimiter;
+    // Service issuing compact tokens for internal service-to-service calls
+    private final CompactTokenService compactTokenService;
+    // Asynchronous log of registrations and logins
+    private final AuditLog auditLog;
+    // Counters of the "auth.requests" metric by operation and outcome ordinal; built once so that counting a request
+    // does not look up the registry
+    private final Counter[][] outcomeCounters;
+
+    // Hash checked when no user has the email, so that logins of unknown users take as long as others
+    private volatile String userNotFoundPassword;
 
     /**
-     * Registers a new user.
-     * @param request Contains user registration details.
-     * @return Authentication response with JWT token.
+     * Creates the service and registers its outcome counters.
+     * @param userRepository Repository to interact with user data in the database.
+     * @param passwordEncoder Encoder to hash user passwords.
+     * @param jwtService Service to handle JWT operations.
+     * @param principalService Service holding cached principals.
+     * @param passwordHashingExecutor Bounded executor running the password hashing work.
+     * @param blockingExecutor Executor running the blocking database work that follows a password hash.
+     * @param refreshTokenStore Store of the refresh tokens.
+     * @param tokenRevocationService Service tracking tokens revoked before they expired.
+     * @param loginRateLimiter Limiter of login attempts per email and client address.
+     * @param compactTokenService Service issuing compact tokens for internal service-to-service calls.
+     * @param meterRegistry Registry the outcome counters are published to.
+     * @param auditLog Asynchronous log of registrations and logins.
      */
-    public AuthenticationReponse register(RegisterRequest request) {
-        if (userRepository.findByEmail(request.getEmail()).isPresent()) {
-            throw new IllegalStateException("Email is already in use.");
+    public AuthenticationService(UserRepository userRepository,
+                                 PasswordEncoder passwordEncoder,
+                                 JwtService jwtService,
+                                 PrincipalService principalService,
+                                 PasswordHashingExecutor passwordHashingExecutor,
+                                 @Qualifier("applicationTaskExecutor") Executor blockingExecutor,
+                                 RefreshTokenStore refreshTokenStore,
+                                 TokenRevocationService tokenRevocationService,
+                                 LoginRateLimiter loginRateLimiter,
+                                 CompactTokenService compactTokenService,
+                                 MeterRegistry meterRegistry,
+                                 AuditLog auditLog) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.jwtService = jwtService;
+        this.principalService = principalService;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.blockingExecutor = blockingExecutor;
+        this.refreshTokenStore = refreshTokenStore;
+        this.tokenRevocationService = tokenRevocationService;
+        this.loginRateLimiter = loginRateLimiter;
+        this.compactTokenService = compactTokenService;
+        this.auditLog = auditLog;
+
+        this.outcomeCounters = new Counter[Operation.values().length][Outcome.values().length];
+        for (Operation operation : Operation.values()) {
+            for (Outcome outcome : Outcome.values()) {
+                outcomeCounters[operation.ordinal()][outcome.ordinal()] = Counter.builder("auth.requests")
+                        .description("Registrations, logins and session renewals, by operation and outcome")
+                        .tag("operation", operation.tag())
+                        .tag("outcome", outcome.tag())
+                        .register(meterRegistry);
+            }
         }
+    }
+
+    /**
+     * Registers a new user. The password is hashed on the password hashing executor, and the user is inserted on the
+     * blocking executor once the hash is ready.
+     * @param request Contains user registration details.
+     * @param clientAddress Address of the client registering, for the audit log.
+     * @return Future completed with the authentication response with JWT token.
+     * @throws com.example.demo.auth.exception.HashingCapacityExceededException if the hashing executor is saturated.
+     */
+    public CompletableFuture<AuthenticationReponse> register(RegisterRequest request, String clientAddress) {
+        return recordOutcome(Operation.REGISTER, request.getEmail(), clientAddress,
+                () -> passwordHashingExecutor.submit(() -> passwordEncoder.encode(request.getPassword()))
+                        .thenApplyAsync(password -> registerUser(request, password), blockingExecutor));
+    }
+
+    /**
+     * Authenticates an existing user, looking the user up on the calling thread.
+     * The attempt is counted against the email and the client address first, so rate-limited attempts are rejected
+     * before the user is looked up or any password is hashed.
+     * @param request Contains user authentication details.
+     * @param clientAddress Address of the client making the attempt.
+     * @return Future completed with the authentication response with JWT token.
+     * @throws com.example.demo.auth.exception.LoginRateLimitExceededException if the client has made too many attempts.
+     * @throws com.example.demo.auth.exception.HashingCapacityExceededException if the hashing executor is saturated.
+     */
+    public CompletableFuture<AuthenticationReponse> authenticate(AuthenticationRequest request, String clientAddress) {
+        return authenticate(request, clientAddress,
+                email -> CompletableFuture.completedFuture(userRepository.findByEmail(email).orElse(null)));
+    }
 
+    /**
+     * Authenticates an existing user that is looked up by the caller, e.g. without blocking in the reactive mode.
+     * The attempt is rate limited before the lookup starts, the password is checked on the password hashing executor
+     * once the user has been loaded, and the tokens are issued on the blocking executor.
+     * @param request Contains user authentication details.
+     * @param clientAddress Address of the client making the attempt.
+     * @param userLookup Looks up the user by email; its future completes with null if no user has the email.
+     * @return Future completed with the authentication response with JWT token.
+     * @throws com.example.demo.auth.exception.LoginRateLimitExceededException if the client has made too many attempts.
+     */
+    public CompletableFuture<AuthenticationReponse> authenticate(AuthenticationRequest request, String clientAddress,
+                                                                 Function<String, CompletableFuture<User>> userLookup) {
+        return recordOutcome(Operation.AUTHENTICATE, request.getEmail(), clientAddress, () -> {
+            loginRateLimiter.acquire(request.getEmail(), clientAddress);
+            return userLookup.apply(request.getEmail())
+                    .thenCompose(user -> passwordHashingExecutor.submit(() -> checkPassword(user, request.getPassword())))
+                    .thenApplyAsync(user -> completeLogin(user, request.getPassword()), blockingExecutor);
+        });
+    }
+
+    /**
+     * Registers a new user whose password has been hashed.
+     * The user is inserted straight away and a duplicate email is detected by the unique email index,
+     * which takes one round-trip and cannot race with a concurrent registration.
+     * @param request Contains user registration details.
+     * @param password Hash of the user's password.
+     * @return Authentication response with JWT token.
+     * @throws EmailAlreadyInUseException if another user already has the email.
+     */
+    private AuthenticationReponse registerUser(RegisterRequest request, String password) {
         var user = User.builder()
                 .name(request.getName())
-                .email(request.getEmail())
-                .password(passwordEncoder.encode(request.getPassword()))
+                .email(User.normalizeEmail(request.getEmail()))
+                .password(password)
                 .role(Role.ROLE_USER)
                 .build();
 
-        userRepository.save(user);
+        try {
+            userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw new EmailAlreadyInUseException();
+        }
+        principalService.evict(user.getEmail());
+
+        return issueTokens(user);
+    }
 
-        var jwtToken = jwtService.generateToken(user);
-        return AuthenticationReponse.builder()
-                .token(jwtToken)
-                .build();
+    /**
+     * Checks the password of a user that has already been loaded, like the authentication provider does.
+     * A missing user costs a password check as well, so response times do not reveal which emails are registered.
+     * @param user Loaded user, or null if no user has the email.
+     * @param rawPassword Password the user authenticates with.
+     * @return The user, whose password matches.
+     * @throws BadCredentialsException if there is no such user or the password does not match.
+     */
+    private User checkPassword(User user, String rawPassword) {
+        if (user == null) {
+            passwordEncoder.matches(rawPassword, userNotFoundPassword());
+            throw new BadCredentialsException("Bad credentials");
+        }
+        if (rawPassword == null || !passwordEncoder.matches(rawPassword, user.getPassword())) {
+            throw new BadCredentialsException("Bad credentials");
+        }
+        return user;
     }
 
     /**
-     * Authenticates an existing user.
-     * @param request Contains user authentication details.
+     * Upgrades an outdated password hash and issues the tokens of a user whose password has been checked.
+     * @param user Authenticated user.
+     * @param rawPassword Password the user authenticated with.
      * @return Authentication response with JWT token.
      */
-    public AuthenticationReponse authenticate(AuthenticationRequest request) {
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        request.getEmail(),
-                        request.getPassword()
-                )
-        );
+    private AuthenticationReponse completeLogin(User user, String rawPassword) {
+        if (passwordEncoder.upgradeEncoding(user.getPassword())) {
+            upgradePassword(user, rawPassword);
+        }
+
+        return issueTokens(user);
+    }
+
+    /**
+     * Returns a hash that no password is checked against successfully, created on first use.
+     */
+    private String userNotFoundPassword() {
+        String hash = userNotFoundPassword;
+        if (hash == null) {
+            hash = passwordEncoder.encode("userNotFoundPassword");
+            userNotFoundPassword = hash;
+        }
+        return hash;
+    }
 
-        var user = userRepository.findByEmail(request.getEmail())
-                .orElseThrow();
+    /**
+     * Renews a session with a refresh token instead of the password.
+     * The refresh token is used up and a new one is returned with the new JWT token.
+     * @param request Contains the refresh token.
+     * @return Authentication response with a new JWT token and refresh token.
+     * @throws InvalidRefreshTokenException if the refresh token is unknown, expired or already used.
+     */
+    public AuthenticationReponse refresh(RefreshRequest request) {
+        try {
+            AuthenticationReponse response = refreshSession(request);
+            countOutcome(Operation.REFRESH, null);
+            return response;
+        } catch (RuntimeException e) {
+            countOutcome(Operation.REFRESH, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Renews a session with a refresh token.
+     * @param request Contains the refresh token.
+     * @return Authentication response with a new JWT token and refresh token.
+     */
+    private AuthenticationReponse refreshSession(RefreshRequest request) {
+        if (request.getRefreshToken() == null) {
+            throw new InvalidRefreshTokenException();
+        }
+        String email = refreshTokenStore.consume(request.getRefreshToken())
+                .orElseThrow(InvalidRefreshTokenException::new);
 
-        var jwtToken = jwtService.generateToken(user);
+        try {
+            return issueTokens(principalService.loadUserByUsername(email));
+        } catch (UsernameNotFoundException e) {
+            throw new InvalidRefreshTokenException();
+        }
+    }
+
+    /**
+     * Ends a session by revoking its JWT token and, if given, using up its refresh token.
+     * The refresh token is only used up if it was issued to the subject of the JWT token; a token of another user is
+     * ignored, so one session cannot end another user's session.
+     * @param jwt JWT token of the session.
+     * @param request Contains the refresh token of the session; may be null.
+     * @throws io.jsonwebtoken.JwtException if the JWT token is invalid or has expired.
+     */
+    public void logout(String jwt, RefreshRequest request) {
+        var token = jwtService.verifyToken(jwt);
+        if (token.getId() != null) {
+            tokenRevocationService.revoke(token.getId(), token.getExpiration());
+        }
+        if (request != null && request.getRefreshToken() != null) {
+            refreshTokenStore.consume(request.getRefreshToken(), token.getSubject());
+        }
+    }
+
+    /**
+     * Exchanges a JWT token for a compact token that internal services can verify without parsing JSON.
+     * The user is read from the database rather than from the principal cache, so the compact token carries the roles
+     * the user has right now. The compact token carries the id of the JWT: logging out revokes both, and the compact
+     * token expires no later than the JWT.
+     * @param jwt JWT token of the session.
+     * @return Authentication response with the compact token and no refresh token.
+     * @throws io.jsonwebtoken.JwtException if the JWT token is invalid, expired, revoked, has no id or its user no
+     * longer exists.
+     */
+    public AuthenticationReponse issueCompactToken(String jwt) {
+        var token = jwtService.verifyToken(jwt);
+        if (token.getId() == null) {
+            throw new JwtException("Token without an id cannot be exchanged.");
+        }
+        if (tokenRevocationService.isRevoked(token.getId())) {
+            throw new JwtException("Token has been revoked.");
+        }
+        User user = userRepository.findByEmail(token.getSubject())
+                .orElseThrow(() -> new JwtException("Token subject no longer exists."));
+        return AuthenticationReponse.builder()
+                .token(compactTokenService.issue(user.getId(), user.getAuthorities(), token.getId(), token.getExpiration()))
+                .build();
+    }
+
+    /**
+     * Issues a JWT token and a refresh token for the user.
+     * @param user User to issue the tokens to.
+     * @return Authentication response with both tokens.
+     */
+    private AuthenticationReponse issueTokens(UserDetails user) {
         return AuthenticationReponse.builder()
-                .token(jwtToken)
+                .token(jwtService.generateToken(user))
+                .refreshToken(refreshTokenStore.issue(user.getUsername()))
                 .build();
     }
+
+    /**
+     * Counts the outcome of an operation in the "auth.requests" counter, tagged by operation and outcome, and records it
+     * in the audit log.
+     * Failures raised before the future is created are counted and rethrown as they are.
+     * @param operation The operation, registration or login.
+     * @param email Email the operation is for.
+     * @param clientAddress Address of the client.
+     * @param action Starts the operation.
+     * @param <T> Type of the operation result.
+     * @return Future of the operation.
+     */
+    private <T> CompletableFuture<T> recordOutcome(Operation operation, String email, String clientAddress,
+                                                   Supplier<CompletableFuture<T>> action) {
+        CompletableFuture<T> future;
+        try {
+            future = action.get();
+        } catch (RuntimeException e) {
+            recordOutcome(operation, email, clientAddress, e);
+            throw e;
+        }
+        return future.whenComplete((result, failure) -> recordOutcome(operation, email, clientAddress, failure));
+    }
+
+    private void recordOutcome(Operation operation, String email, String clientAddress, Throwable failure) {
+        Outcome outcome = outcomeOf(failure);
+        outcomeCounters[operation.ordinal()][outcome.ordinal()].increment();
+        auditLog.publish(auditEventOf(operation, outcome), email, clientAddress);
+    }
+
+    private void countOutcome(Operation operation, Throwable failure) {
+        outcomeCounters[operation.ordinal()][outcomeOf(failure).ordinal()].increment();
+    }
+
+    private static AuditEventType auditEventOf(Operation operation, Outcome outcome) {
+        if (operation == Operation.REGISTER) {
+            return outcome == Outcome.SUCCESS ? AuditEventType.REGISTERED : AuditEventType.REGISTRATION_FAILED;
+        }
+        return switch (outcome) {
+            case SUCCESS -> AuditEventType.LOGIN_SUCCEEDED;
+            case RATE_LIMITED -> AuditEventType.LOGIN_RATE_LIMITED;
+            default -> AuditEventType.LOGIN_FAILED;
+        };
+    }
+
+    private static Outcome outcomeOf(Throwable failure) {
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        if (failure == null) {
+            return Outcome.SUCCESS;
+        } else if (failure instanceof AuthenticationException) {
+            return Outcome.BAD_CREDENTIALS;
+        } else if (failure instanceof InvalidRefreshTokenException) {
+            return Outcome.INVALID_TOKEN;
+        } else if (failure instanceof LoginRateLimitExceededException) {
+            return Outcome.RATE_LIMITED;
+        } else if (failure instanceof HashingCapacityExceededException) {
+            return Outcome.OVERLOADED;
+        } else if (failure instanceof EmailAlreadyInUseException) {
+            return Outcome.CONFLICT;
+        }
+        return Outcome.ERROR;
+    }
+
+    /**
+     * Rehashes the password of a user whose stored hash uses an outdated algorithm or work factor.
+     * Runs in the background: the new hash is computed on the hashing executor and stored on the blocking executor.
+     * When the hashing executor is saturated the upgrade is skipped and retried on a later login.
+     * @param user User that has just authenticated.
+     * @param rawPassword Password the user authenticated with.
+     */
+    private void upgradePassword(User user, String rawPassword) {
+        String currentPassword = user.getPassword();
+        CompletableFuture<String> upgradedPassword;
+        try {
+            upgradedPassword = passwordHashingExecutor.submit(() -> passwordEncoder.encode(rawPassword));
+        } catch (HashingCapacityExceededException e) {
+            return;
+        }
+        upgradedPassword.thenAcceptAsync(password -> {
+            if (userRepository.updatePassword(user.getId(), currentPassword, password) > 0) {
+                principalService.evict(user.getEmail());
+            }
+        }, blockingExecutor);
+    }
+
+    /**
+     * Operations counted in the "auth.requests" metric; the tag is the lower-case name.
+     */
+    private enum Operation {
+        REGISTER,
+        AUTHENTICATE,
+        REFRESH;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Outcomes counted in the "auth.requests" metric; the tag is the lower-case name.
+     */
+    private enum Outcome {
+        SUCCESS,
+        BAD_CREDENTIALS,
+        INVALID_TOKEN,
+        RATE_LIMITED,
+        OVERLOADED,
+        CONFLICT,
+        ERROR;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
 }
@@ -0,0 +1,76 @@
+package com.example.demo.auth.service;
+
+import com.example.demo.auth.exception.LoginRateLimitExceededException;
+import com.example.demo.user.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Limits login attempts per email and per client address before any password is hashed.
+ * Each dimension is a fixed-size table of lock-free token buckets, so memory stays bounded however many emails or
+ * addresses an attacker cycles through. Email buckets keep a fingerprint of their key; address buckets are approximate
+ * and may be shared by addresses whose hashes collide.
+ * Emails are normalized as for the user lookup, so spelling variants of one address share its bucket. The client
+ * address is the request's remote address; behind a proxy it is the client's only with server.forward-headers-strategy
+ * set, otherwise every client shares the proxy's bucket.
+ */
+@Slf4j
+@Component
+public class LoginRateLimiter {
+
+    // Whether attempts are limited at all
+    private final boolean enabled;
+
+    // Buckets of login attempts per email
+    private final TokenBuckets emailBuckets;
+
+    // Buckets of login attempts per client address
+    private final TokenBuckets addressBuckets;
+
+    /**
+     * Creates the limiter with the configured limits.
+     * @param enabled Whether attempts are limited at all.
+     * @param slots Number of buckets per table; rounded up to a power of two.
+     * @param emailCapacity Attempts allowed in a burst for one email.
+     * @param emailRefillPeriod Time it takes for the attempts of one email to refill completely.
+     * @param addressCapacity Attempts allowed in a burst from one client address.
+     * @param addressRefillPeriod Time it takes for the attempts of one client address to refill completely.
+     */
+    public LoginRateLimiter(@Value("${security.login-rate-limit.enabled:true}") boolean enabled,
+                            @Value("${security.login-rate-limit.slots:1048576}") int slots,
+                            @Value("${security.login-rate-limit.email.capacity:5}") int emailCapacity,
+                            @Value("${security.login-rate-limit.email.refill-period:PT1M}") Duration emailRefillPeriod,
+                            @Value("${security.login-rate-limit.address.capacity:20}") int addressCapacity,
+                            @Value("${security.login-rate-limit.address.refill-period:PT1M}") Duration addressRefillPeriod) {
+        this.enabled = enabled;
+        this.emailBuckets = new TokenBuckets(slots, emailCapacity, emailRefillPeriod, true);
+        this.addressBuckets = new TokenBuckets(slots, addressCapacity, addressRefillPeriod, false);
+        if (enabled) {
+            log.info("Login rate limiting uses {} KiB of buckets",
+                    (emailBuckets.sizeInBytes() + addressBuckets.sizeInBytes()) / 1024);
+        }
+    }
+
+    /**
+     * Takes one login attempt from the buckets of the client address and the email.
+     * The address is checked first, so attempts rejected for the address do not use up the email's attempts.
+     * @param email Email the client tries to log in as, as entered.
+     * @param clientAddress Address of the client.
+     * @throws LoginRateLimitExceededException if either bucket is empty.
+     */
+    public void acquire(String email, String clientAddress) {
+        if (!enabled) {
+            return;
+        }
+        long waitMillis = addressBuckets.tryAcquire(clientAddress == null ? "" : clientAddress);
+        if (waitMillis == 0) {
+            waitMillis = emailBuckets.tryAcquire(email == null ? "" : User.normalizeEmail(email));
+        }
+        if (waitMillis > 0) {
+            throw new LoginRateLimitExceededException(Duration.ofMillis(waitMillis));
+        }
+    }
+}
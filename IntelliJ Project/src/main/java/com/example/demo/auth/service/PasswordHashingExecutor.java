@@ -0,0 +1,114 @@
+package com.example.demo.auth.service;
+
+import com.example.demo.auth.exception.HashingCapacityExceededException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Dedicated, bounded executor for password hashing work.
+ * BCrypt is CPU bound, so it runs on a fixed pool sized to the available cores instead of the request threads,
+ * and work beyond the queue limit is rejected immediately rather than queued.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    // Pool running the hashing tasks
+    private final ThreadPoolExecutor executor;
+
+    // Time tasks spend queued before a hashing thread picks them up
+    private final Timer queueWait;
+
+    // Time tasks spend running on a hashing thread
+    private final Timer executionTime;
+
+    /**
+     * Creates the executor with the configured bounds and registers its metrics.
+     * @param threads Number of hashing threads; 0 uses one thread per available processor.
+     * @param queueCapacity Maximum number of tasks waiting for a hashing thread.
+     * @param meterRegistry Registry the executor metrics are published to.
+     */
+    public PasswordHashingExecutor(@Value("${security.hashing.threads:0}") int threads,
+                                   @Value("${security.hashing.queue-capacity:100}") int queueCapacity,
+                                   MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new HashingThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.queueWait = Timer.builder("auth.hashing.queue.wait")
+                .description("Time password hashing tasks wait for a hashing thread")
+                .register(meterRegistry);
+        this.executionTime = Timer.builder("auth.hashing.execution")
+                .description("Time spent running password hashing tasks")
+                .register(meterRegistry);
+        Gauge.builder("auth.hashing.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Password hashing tasks waiting for a hashing thread")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Submits a task that hashes or verifies a password. Tasks must not block on I/O, which would hold a hashing thread
+     * and make the executor reject logins because of database latency instead of hashing load.
+     * @param task Task to run on a hashing thread.
+     * @param <T> Type of the task result.
+     * @return Future completed with the task result.
+     * @throws HashingCapacityExceededException if the queue is full.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        long submittedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long startedAt = System.nanoTime();
+                queueWait.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return task.get();
+                } finally {
+                    executionTime.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            throw new HashingCapacityExceededException();
+        }
+    }
+
+    /**
+     * Stops accepting tasks and lets queued tasks finish.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Creates named daemon threads for the hashing pool.
+     */
+    private static final class HashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
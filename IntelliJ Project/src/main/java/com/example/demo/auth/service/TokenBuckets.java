@@ -0,0 +1,136 @@
+package com.example.demo.auth.service;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size table of token buckets, one 64-bit slot per key hash, updated with compare-and-set.
+ * Each bucket is kept as its theoretical arrival time (the GCRA form of a token bucket), so taking a token is a single
+ * CAS on one long and memory does not grow with the number of keys.
+ * In exact mode the slot also keeps a fingerprint of its key. A different key hashing to the same slot takes the slot
+ * over only once its bucket has refilled completely, when nothing of the previous key's state is lost; until then the
+ * keys share the bucket. Otherwise colliding keys always share a bucket. Sharing can only make the limit stricter.
+ * Keys are hashed with SipHash under a random key of each table, so which keys collide cannot be worked out offline.
+ */
+class TokenBuckets {
+
+    // Bits of the slot holding the theoretical arrival time, in milliseconds since the table was created
+    private static final int TIME_BITS = 40;
+
+    // Mask of the time part of a slot
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+
+    // One packed bucket per slot: key fingerprint in the high 24 bits, arrival time in the low 40 bits
+    private final AtomicLongArray slots;
+
+    // Number of slots minus one; the number of slots is a power of two
+    private final int mask;
+
+    // Whether slots keep a fingerprint of their key
+    private final boolean exact;
+
+    // Milliseconds it takes to refill one token
+    private final long emissionInterval;
+
+    // How far the arrival time may run ahead of now, i.e. the burst capacity beyond one token
+    private final long tolerance;
+
+    // Origin of the table's clock
+    private final long originNanos = System.nanoTime();
+
+    // Random SipHash key of this table
+    private final long k0;
+    private final long k1;
+
+    /**
+     * Creates a table of token buckets.
+     * @param slots Minimum number of slots; rounded up to a power of two.
+     * @param capacity Tokens a full bucket holds.
+     * @param refillPeriod Time it takes to refill an empty bucket.
+     * @param exact Whether colliding keys replace each other's bucket instead of sharing it.
+     */
+    TokenBuckets(int slots, int capacity, Duration refillPeriod, boolean exact) {
+        int size = Integer.highestOneBit(Math.max(2, slots - 1)) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.exact = exact;
+        this.emissionInterval = Math.max(1, refillPeriod.toMillis() / capacity);
+        this.tolerance = emissionInterval * (capacity - 1);
+        SecureRandom random = new SecureRandom();
+        this.k0 = random.nextLong();
+        this.k1 = random.nextLong();
+    }
+
+    /**
+     * Takes a token from the bucket of the key.
+     * @param key Key of the bucket; compared case-insensitively.
+     * @return 0 if a token was taken, otherwise the milliseconds until one is available.
+     */
+    long tryAcquire(CharSequence key) {
+        long hash = hash(key);
+        int index = (int) hash & mask;
+        long fingerprint = exact ? hash >>> TIME_BITS : 0;
+        long now = (System.nanoTime() - originNanos) / 1_000_000;
+        while (true) {
+            long slot = slots.get(index);
+            long owner = slot >>> TIME_BITS;
+            long arrival = slot & TIME_MASK;
+            // A bucket that has refilled completely holds no state, so it can pass to another key
+            if (owner != fingerprint && arrival <= now) {
+                owner = fingerprint;
+            }
+            long start = Math.max(arrival, now);
+            if (start - now > tolerance) {
+                return start - now - tolerance;
+            }
+            if (slots.compareAndSet(index, slot, owner << TIME_BITS | (start + emissionInterval))) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the memory held by the slots.
+     * @return Size of the table in bytes.
+     */
+    long sizeInBytes() {
+        return (long) slots.length() * Long.BYTES;
+    }
+
+    /**
+     * SipHash-1-3 of the lower-cased UTF-16 characters of the key under the table's random key, so both the low bits
+     * (slot index) and the high bits (fingerprint) depend on the whole key. Computed without allocating.
+     */
+    private long hash(CharSequence key) {
+        long v0 = k0 ^ 0x736f6d6570736575L;
+        long v1 = k1 ^ 0x646f72616e646f6dL;
+        long v2 = k0 ^ 0x6c7967656e657261L;
+        long v3 = k1 ^ 0x7465646279746573L;
+        int length = key.length();
+        // Four characters per word; the last word holds the remaining characters and the length in bytes
+        for (int word = 0, words = length / 4 + 1; word < words; word++) {
+            long m = 0;
+            for (int i = word * 4, end = Math.min(length, i + 4); i < end; i++) {
+                m |= (long) Character.toLowerCase(key.charAt(i)) << ((i & 3) << 4);
+            }
+            if (word == words - 1) {
+                m |= (long) (length * 2) << 56;
+            }
+            v3 ^= m;
+            v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+            v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+            v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+            v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+            v0 ^= m;
+        }
+        v2 ^= 0xff;
+        for (int round = 0; round < 3; round++) {
+            v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+            v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+            v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+            v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+        }
+        return v0 ^ v1 ^ v2 ^ v3;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.demo.configuration;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatConnectorCustomizer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Opt-in configuration that lets the application be checkpointed and restored with CRaC (Coordinated Restore at
+ * Checkpoint). Enabled with app.crac.enabled=true (see the "crac" profile).
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.crac.enabled", havingValue = "true")
+public class CheckpointRestoreConfiguration {
+
+    /**
+     * Binds the server socket when a connector starts instead of when it is created, so stopping the connector for a
+     * checkpoint closes the socket and starting it after a restore opens it again.
+     * @return Customizer applied to Tomcat's connectors.
+     */
+    @Bean
+    public TomcatConnectorCustomizer bindOnStartConnectorCustomizer() {
+        return connector -> connector.setProperty("bindOnInit", "false");
+    }
+
+    /**
+     * Registers the resource that closes sockets and connections before a checkpoint.
+     * @param applicationContext Context of the embedded web server.
+     * @param dataSource Connection pool emptied for the checkpoint.
+     * @return CheckpointRestoreResource registered with CRaC.
+     */
+    @Bean
+    public CheckpointRestoreResource checkpointRestoreResource(ServletWebServerApplicationContext applicationContext,
+                                                               DataSource dataSource) {
+        return new CheckpointRestoreResource(applicationContext, dataSource);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.demo.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.connector.Connector;
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Prepares the application for a CRaC checkpoint and brings it back after a restore.
+ * A checkpoint cannot contain open sockets, so before it Tomcat's connectors are stopped, which closes the server
+ * socket, and the connection pool is suspended and emptied. After a restore the pool is resumed and the connectors are
+ * started again, so the restored process serves requests without going through startup.
+ * On a JDK without CRaC support the resource is registered but never called.
+ */
+@Slf4j
+public class CheckpointRestoreResource implements Resource {
+
+    // Context of the embedded web server whose connectors are stopped for the checkpoint
+    private final ServletWebServerApplicationContext applicationContext;
+
+    // Connection pool emptied for the checkpoint
+    private final DataSource dataSource;
+
+    /**
+     * Creates the resource and registers it for checkpoint and restore notifications.
+     * @param applicationContext Context of the embedded web server.
+     * @param dataSource Connection pool emptied for the checkpoint; requires pool suspension to be allowed.
+     */
+    public CheckpointRestoreResource(ServletWebServerApplicationContext applicationContext, DataSource dataSource) {
+        this.applicationContext = applicationContext;
+        this.dataSource = dataSource;
+        Core.getGlobalContext().register(this);
+    }
+
+    /**
+     * Stops accepting requests and closes all database connections.
+     * @param context CRaC context sending the notification.
+     */
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) throws Exception {
+        log.info("Preparing for checkpoint");
+        for (Connector connector : connectors()) {
+            // Keep the port a random-port connector was given, so it binds the same one after the restore
+            connector.setPort(connector.getLocalPort());
+            connector.stop();
+        }
+        HikariPoolMXBean pool = pool();
+        if (pool != null) {
+            pool.suspendPool();
+            pool.softEvictConnections();
+        }
+    }
+
+    /**
+     * Reopens the connection pool and accepts requests again.
+     * @param context CRaC context sending the notification.
+     */
+    @Override
+    public void afterRestore(Context<? extends Resource> context) throws Exception {
+        HikariPoolMXBean pool = pool();
+        if (pool != null) {
+            pool.resumePool();
+        }
+        for (Connector connector : connectors()) {
+            connector.start();
+        }
+        log.info("Restored from checkpoint");
+    }
+
+    private Connector[] connectors() {
+        return applicationContext.getWebServer() instanceof TomcatWebServer tomcat
+                ? tomcat.getTomcat().getService().findConnectors()
+                : new Connector[0];
+    }
+
+    /**
+     * Returns the pool of the data source, or null if it is not a Hikari pool or has not been started yet.
+     */
+    private HikariPoolMXBean pool() throws SQLException {
+        return dataSource.isWrapperFor(HikariDataSource.class)
+                ? dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean()
+                : null;
+    }
+}
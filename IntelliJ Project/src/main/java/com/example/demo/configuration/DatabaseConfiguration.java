@@ -1,69 +1,100 @@
 package com.example.demo.configuration;
 
-import com.example.demo.security.service.JwtService;
+import com.example.demo.security.service.PrincipalService;
 import com.example.demo.student.model.Student;
 import com.example.demo.student.repository.StudentRepository;
 import com.example.demo.user.model.User;
 import com.example.demo.user.repository.UserRepository;
 import com.example.demo.user.roles.Role;
 import lombok.RequiredArgsConstructor;
-import org.springframework.boot.CommandLineRunner;
-import org.springframework.context.annotation.Bean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.context.event.EventListener;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.List;
 /**
  * Configuration class for initializing the database.
- * Sets up initial data for the application on startup.
+ * Sets up initial data for the application once it has started. Seeding is idempotent: the admin user is created only
+ * if it does not exist, and the students only if the table is empty, so it can run against a persistent schema.
+ * When deferred, seeding runs on a background thread, so the application serves requests without waiting for the
+ * password hash of the admin user. The admin user is only created with a configured password (app.admin.password).
  */
+@Slf4j
 @Configuration
 @RequiredArgsConstructor
 public class DatabaseConfiguration {
 
-    // Service to handle JWT operations
-    private final JwtService jwtService;
-    // Service to load user details for authentication
-    private final UserDetailsService userDetailsService;
     // Repository to interact with user data in the database
     private final UserRepository userRepository;
     // Repository to interact with student data in the database
     private final StudentRepository studentRepository;
     // Encoder to hash user passwords
     private final PasswordEncoder passwordEncoder;
+    // Service holding cached principals, which must be evicted when a user changes
+    private final PrincipalService principalService;
 
-    public static User admin = null;
+    // Whether default data is inserted on startup
+    @Value("${app.seed.enabled:true}")
+    private boolean seedEnabled;
+
+    // Whether seeding runs on a background thread instead of before the application is reported ready
+    @Value("${app.seed.deferred:false}")
+    private boolean seedDeferred;
+
+    // Email of the admin user; shared with JwtService, which issues non-expiring tokens to it
+    @Value("${app.admin.email:admin@gmail.com}")
+    private String adminEmail;
+
+    // Password of the admin user when it is created; the admin user is not created while it is empty
+    @Value("${app.admin.password:}")
+    private String adminPassword;
 
     /**
-     * Initializes the database with default data on application startup.
-     * @return CommandLineRunner to execute the initialization.
+     * Seeds the database with default data once the application has started.
      */
-    @Bean
-    CommandLineRunner commandLineRunner() {
-        return args -> {
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedOnStartup() {
+        if (!seedEnabled) {
+            return;
+        }
+        if (seedDeferred) {
+            Thread seeder = new Thread(this::seed, "database-seed");
+            seeder.setDaemon(true);
+            seeder.start();
+        } else {
+            seed();
+        }
+    }
 
-            if (userRepository.findByEmail("admin@gmail.com").isEmpty() && admin == null) {
-                admin = new User(
+    /**
+     * Creates the admin user and the default students if they do not exist yet.
+     */
+    void seed() {
+        long start = System.nanoTime();
+        if (userRepository.findByEmail(adminEmail).isEmpty()) {
+            if (adminPassword.isBlank()) {
+                log.warn("Admin user {} not created: app.admin.password is not set", adminEmail);
+            } else {
+                User newAdmin = new User(
                         "admin",
-                        "admin@gmail.com",
-                        passwordEncoder.encode("admin"),
+                        adminEmail,
+                        passwordEncoder.encode(adminPassword),
                         Role.ROLE_ADMIN
                 );
-                userRepository.save(admin);
-
-                // Generate JWT token for admin
-                UserDetails adminDetails = userDetailsService.loadUserByUsername(admin.getUsername());
-                String jwtToken = jwtService.generateToken(adminDetails);
-
-                // Print the JWT token to the console (or save it wherever preferable)
-                System.out.println("Admin JWT Token: " + jwtToken);
+                userRepository.save(newAdmin);
+                principalService.evict(newAdmin.getEmail());
+                log.info("Admin user {} created", adminEmail);
             }
+        }
 
+        if (studentRepository.count() == 0) {
             Student malcolm = new Student("Malcolm Duster");
             Student alex = new Student("Alex Jackson");
             studentRepository.saveAll(List.of(malcolm, alex));
-        };
+        }
+        log.info("Database seeded in {} ms", (System.nanoTime() - start) / 1_000_000);
     }
 }
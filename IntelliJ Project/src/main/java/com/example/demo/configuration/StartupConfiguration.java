@@ -0,0 +1,53 @@
+package com.example.demo.configuration;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.List;
+
+/**
+ * Keeps the beans of the authentication path eager when lazy initialization is enabled (see the "prod" profile).
+ * With spring.main.lazy-initialization=true every other bean, such as the student services, is created on first use,
+ * which shortens startup. The authentication path is created at startup anyway, so the first authenticated request
+ * does not pay for it, and so are beans with scheduled tasks, which would otherwise never be scheduled.
+ */
+@Configuration
+public class StartupConfiguration {
+
+    // Packages whose beans serve the authentication path
+    private static final List<String> EAGER_PACKAGES = List.of(
+            "com.example.demo.auth",
+            "com.example.demo.configuration",
+            "com.example.demo.security",
+            "com.example.demo.user"
+    );
+
+    /**
+     * Excludes the authentication path and scheduled beans from lazy initialization.
+     * Static, so the filter is available to the bean factory post-processor that applies lazy initialization.
+     * @return Filter telling which beans stay eager.
+     */
+    @Bean
+    static LazyInitializationExcludeFilter authenticationPathExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> beanType != null && (isOnAuthenticationPath(beanType) || hasScheduledTasks(beanType));
+    }
+
+    private static boolean isOnAuthenticationPath(Class<?> beanType) {
+        String packageName = beanType.getPackageName();
+        for (String eagerPackage : EAGER_PACKAGES) {
+            if (packageName.equals(eagerPackage) || packageName.startsWith(eagerPackage + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasScheduledTasks(Class<?> beanType) {
+        return !MethodIntrospector.selectMethods(beanType, (MethodIntrospector.MetadataLookup<Scheduled>) method ->
+                AnnotatedElementUtils.findMergedAnnotation(method, Scheduled.class)).isEmpty();
+    }
+}
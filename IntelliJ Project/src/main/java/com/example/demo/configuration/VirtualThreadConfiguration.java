@@ -0,0 +1,51 @@
+package com.example.demo.configuration;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in configuration that runs request handling on virtual threads.
+ * Enabled with app.virtual-threads.enabled=true (see the "virtual" profile). Tomcat then handles every request,
+ * including the JwtAuthFilter chain and the blocking repository calls made by it, on its own virtual thread,
+ * so concurrency is bounded by the connection pool rather than by the size of the request thread pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    /**
+     * Provides the executor shared by Tomcat and Spring MVC's asynchronous request processing.
+     * @return ExecutorService starting a virtual thread per task.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        return VirtualThreads.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Replaces Tomcat's request thread pool with the virtual thread executor.
+     * @param virtualThreadExecutor Executor starting a virtual thread per task.
+     * @return Customizer applied to Tomcat's protocol handler.
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    /**
+     * Runs asynchronous MVC work (e.g. streaming responses) on virtual threads instead of Boot's default task pool.
+     * @param virtualThreadExecutor Executor starting a virtual thread per task.
+     * @return AsyncTaskExecutor backed by virtual threads.
+     */
+    @Bean(name = "applicationTaskExecutor")
+    public AsyncTaskExecutor applicationTaskExecutor(ExecutorService virtualThreadExecutor) {
+        return new TaskExecutorAdapter(virtualThreadExecutor);
+    }
+}
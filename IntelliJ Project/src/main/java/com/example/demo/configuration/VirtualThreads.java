@@ -0,0 +1,38 @@
+package com.example.demo.configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads without requiring Java 21 at compile time.
+ * The project is built for Java 17; the virtual thread mode is only available when the application runs on Java 21 or newer.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Checks if the running JVM supports virtual threads.
+     * @return true on Java 21 or newer, false otherwise.
+     */
+    public static boolean isSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     * @return ExecutorService backed by virtual threads.
+     * @throws IllegalStateException if the running JVM does not support virtual threads.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads require Java 21 or newer, running on " + Runtime.version() + ".");
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads are not available.", e);
+        }
+    }
+}
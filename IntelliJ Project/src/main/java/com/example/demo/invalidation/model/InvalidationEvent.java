@@ -0,0 +1,139 @@
+package com.example.demo.invalidation.model;
+
+import lombok.Value;
+
+/**
+ * Change to shared state that other instances must apply to their local copies: a user or student whose cached entry is
+ * stale, or a revoked token.
+ * Events travel as short text lines: a one-character type code followed by the key, and for revocations the epoch
+ * milliseconds at which the token expires. The key "*" stands for every entry of the type.
+ */
+@Value
+public class InvalidationEvent {
+
+    /**
+     * Kinds of shared state, each with the code it is encoded with.
+     */
+    public enum Type {
+        // Cached principal, keyed by email
+        USER('u'),
+        // Cached student lookup, keyed by student id
+        STUDENT('s'),
+        // Revoked token, keyed by token id (jti claim)
+        REVOCATION('r');
+
+        private final char code;
+
+        Type(char code) {
+            this.code = code;
+        }
+
+        private static Type fromCode(char code) {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    // Key standing for every entry of a type
+    private static final String ALL = "*";
+
+    // Kind of state that changed
+    Type type;
+
+    // Email, student id or token id the event applies to, or "*" for every entry of the type
+    String key;
+
+    // Epoch milliseconds at which a revoked token expires; 0 for other events
+    long expiresAt;
+
+    /**
+     * Creates the event for a user that was created or changed.
+     * @param email Email of the user.
+     * @return InvalidationEvent instance.
+     */
+    public static InvalidationEvent user(String email) {
+        return new InvalidationEvent(Type.USER, email, 0);
+    }
+
+    /**
+     * Creates the event for a student that was created or changed.
+     * @param studentId ID of the student.
+     * @return InvalidationEvent instance.
+     */
+    public static InvalidationEvent student(Long studentId) {
+        return new InvalidationEvent(Type.STUDENT, String.valueOf(studentId), 0);
+    }
+
+    /**
+     * Creates the event for a revoked token.
+     * @param tokenId Id (jti claim) of the token.
+     * @param expiresAt Epoch milliseconds at which the token expires.
+     * @return InvalidationEvent instance.
+     */
+    public static InvalidationEvent revocation(String tokenId, long expiresAt) {
+        return new InvalidationEvent(Type.REVOCATION, tokenId, expiresAt);
+    }
+
+    /**
+     * Creates the event invalidating every entry of a type.
+     * @param type Kind of state; revocations cannot be invalidated as a whole.
+     * @return InvalidationEvent instance.
+     */
+    public static InvalidationEvent all(Type type) {
+        if (type == Type.REVOCATION) {
+            throw new IllegalArgumentException("Revocations cannot be invalidated as a whole.");
+        }
+        return new InvalidationEvent(type, ALL, 0);
+    }
+
+    /**
+     * Checks if the event invalidates every entry of its type.
+     * @return true if the event applies to every entry, false otherwise.
+     */
+    public boolean isAll() {
+        return ALL.equals(key);
+    }
+
+    /**
+     * Encodes the event as one line of text.
+     * Keys containing a line break cannot be encoded; for users and students the event widens to every entry instead.
+     * @return Encoded event, or null for a revocation that cannot be encoded.
+     */
+    public String encode() {
+        if (key.indexOf('\n') >= 0) {
+            return type == Type.REVOCATION ? null : all(type).encode();
+        }
+        return type == Type.REVOCATION ? type.code + key + ' ' + expiresAt : type.code + key;
+    }
+
+    /**
+     * Decodes an event encoded with {@link #encode()}.
+     * @param line Encoded event.
+     * @return Decoded event, or null if the line is not a valid event.
+     */
+    public static InvalidationEvent decode(String line) {
+        if (line.length() < 2) {
+            return null;
+        }
+        Type type = Type.fromCode(line.charAt(0));
+        if (type == null) {
+            return null;
+        }
+        if (type != Type.REVOCATION) {
+            return new InvalidationEvent(type, line.substring(1), 0);
+        }
+        int separator = line.lastIndexOf(' ');
+        if (separator < 2) {
+            return null;
+        }
+        try {
+            return revocation(line.substring(1, separator), Long.parseLong(line.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.demo.invalidation.service;
+
+import com.example.demo.invalidation.model.InvalidationEvent;
+
+/**
+ * Broadcasts changes of shared state between the instances of the application, so that their local caches and
+ * revocation lists do not go stale.
+ * Publishing never applies the event locally; the caller has done that already.
+ */
+public interface InvalidationBus {
+
+    /**
+     * Sends an event to every other instance.
+     * Events published within a transaction are sent once it commits, and dropped if it rolls back.
+     * @param event Event to send.
+     */
+    void publish(InvalidationEvent event);
+
+    /**
+     * Registers the receiver of the events of a type published by other instances.
+     * @param type Kind of state.
+     * @param listener Receiver of the events.
+     */
+    void subscribe(InvalidationEvent.Type type, InvalidationListener listener);
+}
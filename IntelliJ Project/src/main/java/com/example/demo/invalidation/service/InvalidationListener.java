@@ -0,0 +1,21 @@
+package com.example.demo.invalidation.service;
+
+import com.example.demo.invalidation.model.InvalidationEvent;
+
+/**
+ * Receiver of the invalidation events other instances publish for one type of state.
+ */
+public interface InvalidationListener {
+
+    /**
+     * Applies an event published by another instance.
+     * @param event Event for a single user, student or revoked token.
+     */
+    void invalidate(InvalidationEvent event);
+
+    /**
+     * Drops every local entry of the type; called when another instance could not name the changed entries, and after
+     * a reconnect, since events published while disconnected are lost.
+     */
+    void invalidateAll();
+}
@@ -0,0 +1,22 @@
+package com.example.demo.invalidation.service;
+
+import com.example.demo.invalidation.model.InvalidationEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Invalidation bus for a single instance; events go nowhere.
+ * Selected with app.invalidation.type=none (the default).
+ */
+@Component
+@ConditionalOnProperty(name = "app.invalidation.type", havingValue = "none", matchIfMissing = true)
+public class NoOpInvalidationBus implements InvalidationBus {
+
+    @Override
+    public void publish(InvalidationEvent event) {
+    }
+
+    @Override
+    public void subscribe(InvalidationEvent.Type type, InvalidationListener listener) {
+    }
+}
@@ -0,0 +1,421 @@
+package com.example.demo.invalidation.service;
+
+import com.example.demo.invalidation.model.InvalidationEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Invalidation bus over PostgreSQL LISTEN/NOTIFY, so instances sharing a database need no further infrastructure.
+ * Published events are collected for a short interval, deduplicated, and sent as a few NOTIFY payloads of many events
+ * each; when too many are pending, user and student events collapse into one event invalidating the whole type.
+ * Each instance listens on a dedicated connection outside the pool. NOTIFY is not durable: events sent while an instance
+ * is disconnected are lost to it. After reconnecting, the instance therefore drops all its cached users and students,
+ * and reloads the revocations, which are also written to a table, since a revoked token must never be accepted again.
+ * The bus starts once every bean has subscribed and before the web server, so the revocations are loaded before the
+ * first request. Selected with app.invalidation.type=postgres.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.invalidation.type", havingValue = "postgres")
+public class PostgresInvalidationBus implements InvalidationBus, SmartLifecycle {
+
+    // Largest NOTIFY payload PostgreSQL accepts is 8000 bytes; the rest is left for the channel name
+    static final int MAX_PAYLOAD_BYTES = 7900;
+
+    // Longer keys are not sent one by one; their event widens to the whole type
+    private static final int MAX_KEY_LENGTH = 512;
+
+    // Channel names are interpolated into LISTEN, so only plain identifiers are allowed
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+
+    // Id of this instance, sent with every payload so an instance ignores its own events
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+
+    // Connection of the publisher; NOTIFY goes through the pool, revocations are written to a table
+    private final JdbcTemplate jdbcTemplate;
+
+    // Settings of the dedicated listening connection
+    private final String url;
+    private final String username;
+    private final String password;
+
+    // Channel the events are sent on
+    private final String channel;
+
+    // How often pending events are sent
+    private final Duration flushInterval;
+
+    // Number of pending events above which user and student events collapse into one event per type
+    private final int maxPending;
+
+    // How long the listener waits before the first reconnect attempt, doubling up to the maximum
+    private final Duration reconnectDelay;
+    private final Duration maxReconnectDelay;
+
+    // How often an idle listening connection is checked to still be alive
+    private final Duration heartbeatInterval;
+
+    // Receivers of the events by type
+    private final Map<InvalidationEvent.Type, List<InvalidationListener>> listeners = new EnumMap<>(InvalidationEvent.Type.class);
+
+    // Events waiting to be sent, deduplicated
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    // Whether the listening connection is up; 1 or 0, published as a gauge
+    private final AtomicInteger connected;
+
+    // Events sent and received, and resynchronizations after a reconnect
+    private final Counter published;
+    private final Counter received;
+    private final Counter resyncs;
+
+    // Sends pending events on schedule
+    private ScheduledExecutorService publisher;
+
+    // Thread holding the listening connection
+    private Thread listener;
+
+    // Cleared on shutdown to stop the listener
+    private volatile boolean running;
+
+    /**
+     * Creates the bus with the configured connection and timing.
+     * @param dataSource Pool the events are sent through.
+     * @param url JDBC url of the database; the listening connection is opened with it.
+     * @param username Database user.
+     * @param password Database password.
+     * @param channel Name of the notification channel, shared by every instance.
+     * @param flushInterval How often pending events are sent.
+     * @param maxPending Number of pending events above which they collapse into one event per type.
+     * @param reconnectDelay Wait before the first reconnect attempt.
+     * @param maxReconnectDelay Longest wait between reconnect attempts.
+     * @param heartbeatInterval How often an idle listening connection is checked.
+     * @param meterRegistry Registry the bus metrics are published to.
+     */
+    public PostgresInvalidationBus(DataSource dataSource,
+                                   @Value("${spring.datasource.url}") String url,
+                                   @Value("${spring.datasource.username:}") String username,
+                                   @Value("${spring.datasource.password:}") String password,
+                                   @Value("${app.invalidation.channel:invalidation}") String channel,
+                                   @Value("${app.invalidation.flush-interval:PT0.05S}") Duration flushInterval,
+                                   @Value("${app.invalidation.max-pending:10000}") int maxPending,
+                                   @Value("${app.invalidation.reconnect-delay:PT1S}") Duration reconnectDelay,
+                                   @Value("${app.invalidation.max-reconnect-delay:PT30S}") Duration maxReconnectDelay,
+                                   @Value("${app.invalidation.heartbeat-interval:PT10S}") Duration heartbeatInterval,
+                                   MeterRegistry meterRegistry) {
+        if (!CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid invalidation channel name: " + channel);
+        }
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.channel = channel;
+        this.flushInterval = flushInterval;
+        this.maxPending = maxPending;
+        this.reconnectDelay = reconnectDelay;
+        this.maxReconnectDelay = maxReconnectDelay;
+        this.heartbeatInterval = heartbeatInterval;
+        for (InvalidationEvent.Type type : InvalidationEvent.Type.values()) {
+            listeners.put(type, new CopyOnWriteArrayList<>());
+        }
+        this.connected = meterRegistry.gauge("invalidation.connected", new AtomicInteger());
+        this.published = events(meterRegistry, "published");
+        this.received = events(meterRegistry, "received");
+        this.resyncs = Counter.builder("invalidation.resyncs")
+                .description("Times the local state was resynchronized after the listening connection was lost")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Creates the revocation table, loads the revocations of the other instances and starts the publisher and the
+     * listener.
+     */
+    @Override
+    public void start() {
+        jdbcTemplate.execute("create table if not exists invalidation_revocation ("
+                + "token_id varchar(255) primary key, expires_at bigint not null)");
+        resync(false);
+        running = true;
+        publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "invalidation-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        publisher.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        listener = new Thread(this::listen, "invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    /**
+     * Sends the remaining events and stops the publisher and the listener.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        publisher.shutdown();
+        try {
+            publisher.awaitTermination(5, TimeUnit.SECONDS);
+            flush();
+            listener.interrupt();
+            listener.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts before the web server, which uses the last phases.
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    @Override
+    public void publish(InvalidationEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(event);
+                }
+            });
+        } else {
+            enqueue(event);
+        }
+    }
+
+    @Override
+    public void subscribe(InvalidationEvent.Type type, InvalidationListener listener) {
+        listeners.get(type).add(listener);
+    }
+
+    /**
+     * Checks if the listening connection is up, i.e. events of other instances are being received.
+     * @return true if connected, false otherwise.
+     */
+    public boolean isConnected() {
+        return connected.get() == 1;
+    }
+
+    /**
+     * Drops revocations of tokens that have expired from the revocation table.
+     */
+    @Scheduled(fixedDelayString = "${security.revocation.prune-interval:PT10M}")
+    public void pruneExpiredRevocations() {
+        jdbcTemplate.update("delete from invalidation_revocation where expires_at <= ?", System.currentTimeMillis());
+    }
+
+    private void enqueue(InvalidationEvent event) {
+        if (event.getType() != InvalidationEvent.Type.REVOCATION
+                && (pending.size() >= maxPending || event.getKey().length() > MAX_KEY_LENGTH)) {
+            event = InvalidationEvent.all(event.getType());
+        }
+        String line = event.encode();
+        if (line != null) {
+            pending.add(line);
+        }
+    }
+
+    /**
+     * Sends the pending events; on failure they stay pending and are retried with the next flush.
+     */
+    void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<String> lines = new ArrayList<>(pending);
+        pending.removeAll(lines);
+        try {
+            List<Object[]> revocations = new ArrayList<>();
+            for (String line : lines) {
+                InvalidationEvent event = InvalidationEvent.decode(line);
+                if (event != null && event.getType() == InvalidationEvent.Type.REVOCATION) {
+                    revocations.add(new Object[]{event.getKey(), event.getExpiresAt()});
+                }
+            }
+            if (!revocations.isEmpty()) {
+                jdbcTemplate.batchUpdate("insert into invalidation_revocation (token_id, expires_at) values (?, ?) "
+                        + "on conflict (token_id) do nothing", revocations);
+            }
+            for (String payload : pack(nodeId, lines)) {
+                jdbcTemplate.queryForList("select pg_notify(?, ?)", channel, payload);
+            }
+            published.increment(lines.size());
+        } catch (RuntimeException e) {
+            log.warn("Could not publish {} invalidation events; retrying", lines.size(), e);
+            lines.forEach(line -> enqueue(InvalidationEvent.decode(line)));
+        }
+    }
+
+    /**
+     * Joins events into as few payloads as fit the NOTIFY size limit, each starting with the id of the sending instance.
+     * @param nodeId Id of the sending instance.
+     * @param lines Encoded events.
+     * @return Payloads, one event per line after the id.
+     */
+    static List<String> pack(String nodeId, Collection<String> lines) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(nodeId);
+        int bytes = nodeId.length();
+        for (String line : lines) {
+            int lineBytes = line.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (bytes + lineBytes > MAX_PAYLOAD_BYTES && payload.length() > nodeId.length()) {
+                payloads.add(payload.toString());
+                payload.setLength(0);
+                payload.append(nodeId);
+                bytes = nodeId.length();
+            }
+            payload.append('\n').append(line);
+            bytes += lineBytes;
+        }
+        if (payload.length() > nodeId.length()) {
+            payloads.add(payload.toString());
+        }
+        return payloads;
+    }
+
+    /**
+     * Holds the listening connection, reconnecting with a growing delay whenever it is lost.
+     */
+    private void listen() {
+        long delayMillis = reconnectDelay.toMillis();
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password);
+                 Statement statement = connection.createStatement()) {
+                // Listen before resynchronizing, so no event falls between the two
+                statement.execute("LISTEN " + channel);
+                resync(reconnect);
+                connected.set(1);
+                delayMillis = reconnectDelay.toMillis();
+                reconnect = true;
+                log.info("Listening for invalidation events on channel {} as instance {}", channel, nodeId);
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                long lastCheck = System.nanoTime();
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(500);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            deliver(notification.getParameter());
+                        }
+                    }
+                    if (System.nanoTime() - lastCheck >= heartbeatInterval.toNanos()) {
+                        statement.execute("SELECT 1");
+                        lastCheck = System.nanoTime();
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                connected.set(0);
+                if (!running) {
+                    return;
+                }
+                log.warn("Invalidation listener lost its connection; reconnecting in {} ms", delayMillis, e);
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                delayMillis = Math.min(delayMillis * 2, maxReconnectDelay.toMillis());
+            }
+        }
+        connected.set(0);
+    }
+
+    /**
+     * Reloads the revocations of the other instances and, after a reconnect, drops every cached user and student, since
+     * the events sent while disconnected are lost.
+     * @param reconnect Whether the connection was up before.
+     */
+    private void resync(boolean reconnect) {
+        long now = System.currentTimeMillis();
+        jdbcTemplate.query("select token_id, expires_at from invalidation_revocation where expires_at > ?",
+                (RowCallbackHandler) row -> dispatch(InvalidationEvent.revocation(row.getString(1), row.getLong(2))), now);
+        if (reconnect) {
+            listeners.get(InvalidationEvent.Type.USER).forEach(InvalidationListener::invalidateAll);
+            listeners.get(InvalidationEvent.Type.STUDENT).forEach(InvalidationListener::invalidateAll);
+            resyncs.increment();
+        }
+    }
+
+    /**
+     * Applies the events of a payload sent by another instance.
+     * @param payload Id of the sending instance followed by one event per line.
+     */
+    private void deliver(String payload) {
+        String[] lines = payload.split("\n");
+        if (lines[0].equals(nodeId)) {
+            return;
+        }
+        for (int i = 1; i < lines.length; i++) {
+            InvalidationEvent event = InvalidationEvent.decode(lines[i]);
+            if (event != null) {
+                dispatch(event);
+                received.increment();
+            }
+        }
+    }
+
+    private void dispatch(InvalidationEvent event) {
+        for (InvalidationListener listener : listeners.get(event.getType())) {
+            try {
+                if (event.isAll()) {
+                    listener.invalidateAll();
+                } else {
+                    listener.invalidate(event);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Invalidation listener failed on {}", event, e);
+            }
+        }
+    }
+
+    private static Counter events(MeterRegistry meterRegistry, String direction) {
+        return Counter.builder("invalidation.events")
+                .description("Invalidation events sent to and received from other instances")
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+}
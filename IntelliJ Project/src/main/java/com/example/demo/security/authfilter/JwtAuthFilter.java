@@ -1,17 +1,20 @@
 package com.example.demo.security.authfilter;
 
-import com.example.demo.security.service.JwtService;
+import com.example.demo.security.config.RouteTable;
+import com.example.demo.security.model.VerifiedToken;
+import com.example.demo.security.service.PrincipalService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -21,19 +24,36 @@ import java.io.IOException;
  * Filter responsible for JWT-based authentication.
  * This filter intercepts each incoming request, extracts the JWT token from the "Authorization" header,
  * validates the token, and sets the authentication in the security context.
+ * Internal callers may send a compact token instead, recognized by its "ct1." prefix.
+ * Requests to public routes pass straight through, and requests that cannot be let through by the route's access rule
+ * are denied here, before any authentication object is built. The checks, metrics and audit events are those of
+ * TokenAuthenticator, shared with the reactive mode.
  */
 @Component
-@RequiredArgsConstructor
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class JwtAuthFilter extends OncePerRequestFilter {
 
-    // Service to handle JWT-related operations
-    private final JwtService jwtService;
+    // Authentication steps shared with the reactive mode
+    private final TokenAuthenticator tokenAuthenticator;
 
-    // Service to load user details based on the username (in this case, email)
-    private final UserDetailsService userDetailsService;
+    // Service to resolve the user details of a verified token without a database lookup per request
+    private final PrincipalService principalService;
+
+    // Keeps the authentication on the request, so asynchronous dispatches (e.g. streamed responses) stay authenticated
+    private final SecurityContextRepository securityContextRepository = new RequestAttributeSecurityContextRepository();
+
+    /**
+     * Creates the filter.
+     * @param tokenAuthenticator Authentication steps shared with the reactive mode.
+     * @param principalService Service to resolve the user details of a verified token.
+     */
+    public JwtAuthFilter(TokenAuthenticator tokenAuthenticator, PrincipalService principalService) {
+        this.tokenAuthenticator = tokenAuthenticator;
+        this.principalService = principalService;
+    }
 
     /**
-     * Intercepts each request, extracts and validates the JWT token from the "Authorization" header,
+     * Intercepts each request, extracts and validates the JWT or compact token from the "Authorization" header,
      * and sets the authentication in the security context if the token is valid.
      *
      * @param request     The incoming HTTP request.
@@ -45,40 +65,73 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                                     @NonNull HttpServletResponse response,
                                     @NonNull FilterChain filterChain) throws ServletException, IOException {
 
-        // Extract the "Authorization" header from the incoming request
-        final String authHeader = request.getHeader("Authorization");
-
-        // If the "Authorization" header is missing or doesn't start with "Bearer ", continue the filter chain without JWT validation
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+        // Look up the access rule of the route; public routes need no authentication, so the token is not even read
+        final RouteTable.Route route = tokenAuthenticator.protectedRoute(
+                request.getRequestURI().substring(request.getContextPath().length()));
+        if (route == null) {
             filterChain.doFilter(request, response);
             return;
         }
 
-        // Extract the JWT token by removing the "Bearer " prefix
-        final String jwt = authHeader.substring(7);
+        // If the "Authorization" header is missing or doesn't start with "Bearer ", the protected route is denied right away
+        final String credential = tokenAuthenticator.credential(request.getHeader("Authorization"));
+        if (credential == null) {
+            deny(response);
+            return;
+        }
 
-        // Retrieve the username (in this case, email) associated with the token
-        final String userEmail = jwtService.extractUsername(jwt);
+        // Keep an authentication that is already in the security context
+        if (SecurityContextHolder.getContext().getAuthentication() != null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
 
-        // Check if the username is not null and if there's no existing authentication in the current security context
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+        // Resolve the user details of the token and check the authority the route needs
+        final String clientAddress = request.getRemoteAddr();
+        final UserDetails userDetails = tokenAuthenticator.isCompactToken(credential)
+                ? tokenAuthenticator.resolveCompactToken(credential, clientAddress)
+                : resolveJwt(credential, clientAddress);
+        final Authentication authentication = userDetails == null
+                ? null
+                : tokenAuthenticator.authorize(route, userDetails, clientAddress);
+        if (authentication == null) {
+            deny(response);
+            return;
+        }
 
-            // Retrieve the user details associated with the extracted username
-            UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
+        // Set the authentication in the security context, effectively authenticating the user for the current request
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        securityContextRepository.saveContext(SecurityContextHolder.getContext(), request, response);
 
-            // Validate the JWT token to ensure it's not expired and matches the user details
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+        // Continue with the rest of the filter chain, allowing subsequent filters to process the request
+        filterChain.doFilter(request, response);
+    }
 
-                // Create an authentication token and set it in the security context, effectively authenticating the user for the current request
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities()
-                );
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
-            }
+    /**
+     * Verifies a JWT and loads the user details of its subject, either from the principal cache or from its claims.
+     * @param jwt The JWT token from the "Authorization" header.
+     * @param clientAddress Address of the client, recorded for rejected tokens.
+     * @return User details of the token, or null if the request must be denied.
+     */
+    private UserDetails resolveJwt(String jwt, String clientAddress) {
+        final VerifiedToken token = tokenAuthenticator.verifyJwt(jwt, clientAddress);
+        if (token == null) {
+            return null;
         }
+        UserDetails userDetails;
+        long start = System.nanoTime();
+        try {
+            userDetails = principalService.loadPrincipal(token);
+        } catch (AuthenticationException e) {
+            userDetails = null;
+        }
+        return tokenAuthenticator.acceptPrincipal(token, userDetails, System.nanoTime() - start, clientAddress);
+    }
 
-        // Continue with the rest of the filter chain, allowing subsequent filters to process the request
-        filterChain.doFilter(request, response);
+    /**
+     * Ends the request with 403, the same response Spring Security gives unauthorized requests.
+     */
+    private static void deny(HttpServletResponse response) throws IOException {
+        response.sendError(HttpServletResponse.SC_FORBIDDEN, "Access Denied");
     }
 }
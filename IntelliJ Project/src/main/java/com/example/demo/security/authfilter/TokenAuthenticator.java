@@ -0,0 +1,266 @@
+package com.example.demo.security.authfilter;
+
+import com.example.demo.audit.model.AuditEventType;
+import com.example.demo.audit.service.AuditLog;
+import com.example.demo.security.config.RouteTable;
+import com.example.demo.security.model.CompactToken;
+import com.example.demo.security.model.VerifiedToken;
+import com.example.demo.security.service.CompactTokenService;
+import com.example.demo.security.service.JwtService;
+import com.example.demo.security.service.TokenRevocationService;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authentication steps shared by the servlet filter (JwtAuthFilter) and the reactive one (JwtAuthWebFilter).
+ * Holds everything that does not depend on the transport: matching the route, reading the bearer credential, verifying
+ * JWTs and compact tokens, the revocation check, the authority check of the route, the metrics and the audit events.
+ * The filters only read the request, load the principal of a verified JWT (blocking or not) and write the response.
+ * Each step returns null when the request must be denied, after counting and recording why.
+ */
+@Component
+public class TokenAuthenticator {
+
+    // Prefix of the "Authorization" header carrying a token
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    // Service to handle JWT-related operations
+    private final JwtService jwtService;
+
+    // Service to verify compact tokens of internal callers
+    private final CompactTokenService compactTokenService;
+
+    // Service to check whether a token has been revoked before it expired
+    private final TokenRevocationService tokenRevocationService;
+
+    // Access rules of the routes
+    private final RouteTable routeTable;
+
+    // Asynchronous log the rejected tokens are recorded in
+    private final AuditLog auditLog;
+
+    // Time spent parsing and verifying tokens by format, including JWT verification cache hits
+    private final Timer jwtVerifyTime;
+    private final Timer compactVerifyTime;
+
+    // Time spent loading the user details of verified tokens
+    private final Timer principalTime;
+
+    // Requests by outcome; built once so that counting a request does not look up the registry
+    private final Counter publicRoute;
+    private final Counter anonymous;
+    private final Counter authenticated;
+    private final Counter invalid;
+    private final Counter revoked;
+    private final Counter rejected;
+    private final Counter forbidden;
+
+    /**
+     * Creates the authenticator and registers the filter metrics.
+     * @param jwtService Service to handle JWT-related operations.
+     * @param compactTokenService Service to verify compact tokens of internal callers.
+     * @param tokenRevocationService Service to check whether a token has been revoked.
+     * @param routeTable Access rules of the routes.
+     * @param meterRegistry Registry the filter metrics are published to.
+     * @param auditLog Asynchronous log the rejected tokens are recorded in.
+     */
+    public TokenAuthenticator(JwtService jwtService,
+                              CompactTokenService compactTokenService,
+                              TokenRevocationService tokenRevocationService,
+                              RouteTable routeTable,
+                              MeterRegistry meterRegistry,
+                              AuditLog auditLog) {
+        this.jwtService = jwtService;
+        this.compactTokenService = compactTokenService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.routeTable = routeTable;
+        this.auditLog = auditLog;
+        this.jwtVerifyTime = verifyTimer(meterRegistry, "jwt");
+        this.compactVerifyTime = verifyTimer(meterRegistry, "compact");
+        this.principalTime = Timer.builder("auth.filter.principal")
+                .description("Time spent loading the user details of verified JWT tokens")
+                .register(meterRegistry);
+        this.publicRoute = outcome(meterRegistry, "public");
+        this.anonymous = outcome(meterRegistry, "anonymous");
+        this.authenticated = outcome(meterRegistry, "authenticated");
+        this.invalid = outcome(meterRegistry, "invalid");
+        this.revoked = outcome(meterRegistry, "revoked");
+        this.rejected = outcome(meterRegistry, "rejected");
+        this.forbidden = outcome(meterRegistry, "forbidden");
+    }
+
+    /**
+     * Looks up the access rule of a route. Public routes need no authentication, so their token is not even read.
+     * @param path Path of the request within the application.
+     * @return The route, or null if the route is public and the request passes without authentication.
+     */
+    public RouteTable.Route protectedRoute(String path) {
+        RouteTable.Route route = routeTable.match(path);
+        if (route.getAccess() == RouteTable.Access.PUBLIC) {
+            publicRoute.increment();
+            return null;
+        }
+        return route;
+    }
+
+    /**
+     * Extracts the credential from the "Authorization" header of a request to a protected route.
+     * @param authHeader Value of the "Authorization" header, or null if it is missing.
+     * @return The JWT or compact token, or null if the request carries none and must be denied.
+     */
+    public String credential(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith(BEARER_PREFIX)) {
+            anonymous.increment();
+            return null;
+        }
+        return authHeader.substring(BEARER_PREFIX.length());
+    }
+
+    /**
+     * Checks if a credential is a compact internal token; compact tokens are told apart from JWTs by their prefix.
+     * @param credential The credential from the "Authorization" header.
+     * @return true for a compact token, false for a JWT.
+     */
+    public boolean isCompactToken(String credential) {
+        return credential.startsWith(CompactTokenService.PREFIX);
+    }
+
+    /**
+     * Verifies a JWT and checks that it is not revoked and has a subject the principal can be loaded for.
+     * @param jwt The JWT token from the "Authorization" header.
+     * @param clientAddress Address of the client, recorded for rejected tokens.
+     * @return The verified token, or null if the request must be denied.
+     */
+    public VerifiedToken verifyJwt(String jwt, String clientAddress) {
+        // Parse and verify the token once; the result is reused for every check below
+        final VerifiedToken token;
+        long start = System.nanoTime();
+        try {
+            token = jwtService.verifyToken(jwt);
+        } catch (JwtException e) {
+            invalid.increment();
+            auditLog.publish(AuditEventType.TOKEN_INVALID, null, clientAddress);
+            return null;
+        } finally {
+            jwtVerifyTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        // Revoked tokens are denied
+        if (tokenRevocationService.isRevoked(token.getId())) {
+            revoked.increment();
+            auditLog.publish(AuditEventType.TOKEN_REVOKED, token.getSubject(), clientAddress);
+            return null;
+        }
+
+        // Tokens without a username (in this case, email) cannot be resolved to a user
+        if (token.getSubject() == null) {
+            rejected.increment();
+            auditLog.publish(AuditEventType.TOKEN_REJECTED, null, clientAddress);
+            return null;
+        }
+        return token;
+    }
+
+    /**
+     * Checks the principal loaded for a verified JWT.
+     * @param token The verified token.
+     * @param userDetails User details loaded for the token's subject, or null if none could be loaded.
+     * @param principalNanos Time spent loading the user details.
+     * @param clientAddress Address of the client, recorded for rejected tokens.
+     * @return The user details, or null if the request must be denied.
+     */
+    public UserDetails acceptPrincipal(VerifiedToken token, UserDetails userDetails, long principalNanos,
+                                       String clientAddress) {
+        principalTime.record(principalNanos, TimeUnit.NANOSECONDS);
+
+        // Validate the JWT token to ensure it's not expired and matches the user details
+        if (userDetails == null || !jwtService.isTokenValid(token, userDetails)) {
+            rejected.increment();
+            auditLog.publish(AuditEventType.TOKEN_REJECTED, token.getSubject(), clientAddress);
+            return null;
+        }
+        return userDetails;
+    }
+
+    /**
+     * Verifies a compact internal token and builds the user details from its claims.
+     * Compact tokens are short-lived and are not looked up in the database; they are denied once their parent JWT is
+     * revoked.
+     * @param credential The compact token from the "Authorization" header.
+     * @param clientAddress Address of the client, recorded for rejected tokens.
+     * @return User details of the token, or null if the request must be denied.
+     */
+    public UserDetails resolveCompactToken(String credential, String clientAddress) {
+        final CompactToken token;
+        long start = System.nanoTime();
+        try {
+            token = compactTokenService.verify(credential);
+        } finally {
+            compactVerifyTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (token == null) {
+            invalid.increment();
+            auditLog.publish(AuditEventType.TOKEN_INVALID, null, clientAddress);
+            return null;
+        }
+        UserDetails userDetails = compactTokenService.toPrincipal(token);
+
+        // A compact token is revoked with the JWT it was exchanged for
+        if (tokenRevocationService.isRevoked(token.getParentTokenIdHigh(), token.getParentTokenIdLow())) {
+            revoked.increment();
+            auditLog.publish(AuditEventType.TOKEN_REVOKED, userDetails.getUsername(), clientAddress);
+            return null;
+        }
+        return userDetails;
+    }
+
+    /**
+     * Checks the authority the route needs and builds the authentication of the request.
+     * Routes needing an authority the user lacks are denied before an authentication is built.
+     * @param route The protected route of the request.
+     * @param userDetails User details of the request's token.
+     * @param clientAddress Address of the client, recorded for forbidden requests.
+     * @return The authentication of the request, or null if the request must be denied.
+     */
+    public Authentication authorize(RouteTable.Route route, UserDetails userDetails, String clientAddress) {
+        if (route.getAccess() == RouteTable.Access.AUTHORITY && !hasAuthority(userDetails, route.getAuthority())) {
+            forbidden.increment();
+            auditLog.publish(AuditEventType.ACCESS_FORBIDDEN, userDetails.getUsername(), clientAddress);
+            return null;
+        }
+        authenticated.increment();
+        return UsernamePasswordAuthenticationToken.authenticated(userDetails, null, userDetails.getAuthorities());
+    }
+
+    private static boolean hasAuthority(UserDetails userDetails, String authority) {
+        for (GrantedAuthority grantedAuthority : userDetails.getAuthorities()) {
+            if (authority.equals(grantedAuthority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Timer verifyTimer(MeterRegistry meterRegistry, String format) {
+        return Timer.builder("auth.filter.verify")
+                .description("Time spent parsing and verifying tokens, by format")
+                .tag("format", format)
+                .register(meterRegistry);
+    }
+
+    private static Counter outcome(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("auth.filter.requests")
+                .description("Requests seen by the JWT filter, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
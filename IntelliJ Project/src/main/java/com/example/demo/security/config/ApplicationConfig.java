@@ -1,7 +1,11 @@
 package com.example.demo.security.config;
 
+import com.example.demo.security.service.PasswordEncoderFactory;
+import com.example.demo.security.service.TimedPasswordEncoder;
 import com.example.demo.user.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -10,7 +14,6 @@ import org.springframework.security.authentication.dao.DaoAuthenticationProvider
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 /**
  * Configuration class for application-wide beans and services.
@@ -23,6 +26,12 @@ public class ApplicationConfig {
     // Repository to fetch user details based on email
     private final UserRepository userRepository;
 
+    // Factory building the calibrated, delegating password encoder
+    private final PasswordEncoderFactory passwordEncoderFactory;
+
+    // Registry the password hashing timers are published to
+    private final MeterRegistry meterRegistry;
+
     /**
      * Provides a custom user details service that fetches user details based on email.
      * @return UserDetailsService instance.
@@ -34,7 +43,7 @@ public class ApplicationConfig {
     }
 
     /**
-     * Provides an authentication provider that uses the custom user details service and BCrypt password encoder.
+     * Provides an authentication provider that uses the custom user details service and the delegating password encoder.
      * @return AuthenticationProvider instance.
      */
     @Bean
@@ -48,19 +57,23 @@ public class ApplicationConfig {
     /**
      * Provides the authentication manager bean.
      * @param config AuthenticationConfiguration instance.
+     * In the reactive mode, ReactiveSecurityConfiguration provides it instead.
      * @return AuthenticationManager instance.
      */
     @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
     public AuthenticationManager authenticationManager(AuthenticationConfiguration config) throws Exception {
         return config.getAuthenticationManager();
     }
 
     /**
-     * Provides the BCrypt password encoder bean.
+     * Provides the password encoder bean.
+     * New hashes use the configured algorithm and calibrated work factor; existing hashes of any supported algorithm still match.
+     * Encodes and matches are timed per algorithm.
      * @return PasswordEncoder instance.
      */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new TimedPasswordEncoder(passwordEncoderFactory.create(), meterRegistry);
     }
 }
@@ -0,0 +1,139 @@
+package com.example.demo.security.config;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Access rules of every route, compiled once so that a request's rule is found with a few string comparisons.
+ * The same table configures Spring Security's authorization and lets JwtAuthFilter skip public routes and reject
+ * unauthorized requests before building an authentication. Spring Security still checks every request, so a route the
+ * filter treats differently can only be denied, never let through.
+ * Patterns are exact paths, paths ending in "/*" (one more segment) or paths ending in "/**" (any number of segments).
+ */
+@Component
+public class RouteTable {
+
+    // Rule of requests matching none of the routes
+    private static final Route ANY_REQUEST = new Route("/**", Access.AUTHENTICATED, null);
+
+    // Routes in the order they are checked; the first match wins
+    private final List<Route> routes = List.of(
+            Route.permitAll("/api/v1/auth/**"),
+            Route.permitAll("/.well-known/jwks.json"),
+            Route.hasAuthority("/api/v1/students/*", "ROLE_ADMIN"),
+            Route.hasAuthority("/api/v1/users/**", "ROLE_ADMIN")
+    );
+
+    /**
+     * Returns the routes in the order they are checked.
+     * @return Routes, not including the rule for any other request.
+     */
+    public List<Route> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Finds the rule of a request path.
+     * @param path Path of the request, without the context path.
+     * @return The first matching route, or a route requiring authentication if none matches.
+     */
+    public Route match(String path) {
+        for (Route route : routes) {
+            if (route.matches(path)) {
+                return route;
+            }
+        }
+        return ANY_REQUEST;
+    }
+
+    /**
+     * What a request needs in order to be let through.
+     */
+    public enum Access {
+        PUBLIC,
+        AUTHENTICATED,
+        AUTHORITY
+    }
+
+    /**
+     * Access rule of a path pattern, compiled into a prefix and the way the rest of the path is matched.
+     */
+    @Getter
+    public static final class Route {
+
+        // Path pattern the route was compiled from
+        private final String pattern;
+
+        // What a matching request needs
+        private final Access access;
+
+        // Authority required for AUTHORITY routes, otherwise null
+        private final String authority;
+
+        // Part of the pattern before any wildcard
+        @Getter(AccessLevel.NONE)
+        private final String prefix;
+
+        // How the path after the prefix is matched
+        @Getter(AccessLevel.NONE)
+        private final Wildcard wildcard;
+
+        private Route(String pattern, Access access, String authority) {
+            this.pattern = pattern;
+            this.access = access;
+            this.authority = authority;
+            if (pattern.endsWith("/**")) {
+                this.prefix = pattern.substring(0, pattern.length() - 3);
+                this.wildcard = Wildcard.ANY_DEPTH;
+            } else if (pattern.endsWith("/*")) {
+                this.prefix = pattern.substring(0, pattern.length() - 1);
+                this.wildcard = Wildcard.ONE_SEGMENT;
+            } else {
+                this.prefix = pattern;
+                this.wildcard = Wildcard.NONE;
+            }
+            if (prefix.indexOf('*') >= 0) {
+                throw new IllegalArgumentException("Wildcards are only supported at the end of a pattern: " + pattern);
+            }
+        }
+
+        static Route permitAll(String pattern) {
+            return new Route(pattern, Access.PUBLIC, null);
+        }
+
+        static Route hasAuthority(String pattern, String authority) {
+            return new Route(pattern, Access.AUTHORITY, authority);
+        }
+
+        /**
+         * Checks if the path matches the pattern without allocating.
+         * @param path Path of the request.
+         * @return true if the path matches.
+         */
+        boolean matches(String path) {
+            return switch (wildcard) {
+                // "/a" matches only "/a"
+                case NONE -> path.equals(prefix);
+                // "/a/*" matches "/a/b" but neither "/a/" nor "/a/b/c"
+                case ONE_SEGMENT -> path.length() > prefix.length()
+                        && path.startsWith(prefix)
+                        && path.indexOf('/', prefix.length()) < 0;
+                // "/a/**" matches "/a" and everything below it
+                case ANY_DEPTH -> path.startsWith(prefix)
+                        && (path.length() == prefix.length() || path.charAt(prefix.length()) == '/');
+            };
+        }
+    }
+
+    /**
+     * Wildcard at the end of a pattern.
+     */
+    private enum Wildcard {
+        NONE,
+        ONE_SEGMENT,
+        ANY_DEPTH
+    }
+}
@@ -2,6 +2,7 @@ package com.example.demo.security.config;
 
 import com.example.demo.security.authfilter.JwtAuthFilter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationProvider;
@@ -16,6 +17,7 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
  * This class sets up the security filter chain, configures authentication and authorization rules, and integrates JWT authentication.
  */
 @Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @EnableWebSecurity
 @RequiredArgsConstructor
 public class SecurityConfiguration {
@@ -26,6 +28,9 @@ public class SecurityConfiguration {
     // Authentication provider for user authentication
     private final AuthenticationProvider authenticationProvider;
 
+    // Access rules of the routes, shared with the JWT filter
+    private final RouteTable routeTable;
+
     /**
      * Configures the security filter chain with custom authentication and authorization rules.
      * @param http HttpSecurity instance.
@@ -36,11 +41,17 @@ public class SecurityConfiguration {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(
-                        auth -> auth
-                                .requestMatchers("/api/v1/auth/**")
-                                .permitAll()
-                                .requestMatchers("/api/v1/students/*").hasAuthority("ROLE_ADMIN")
-                                .anyRequest().authenticated()
+                        auth -> {
+                            for (RouteTable.Route route : routeTable.getRoutes()) {
+                                var matcher = auth.requestMatchers(route.getPattern());
+                                switch (route.getAccess()) {
+                                    case PUBLIC -> matcher.permitAll();
+                                    case AUTHENTICATED -> matcher.authenticated();
+                                    case AUTHORITY -> matcher.hasAuthority(route.getAuthority());
+                                }
+                            }
+                            auth.anyRequest().authenticated();
+                        }
                 ).sessionManagement(
                         session -> session
                                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
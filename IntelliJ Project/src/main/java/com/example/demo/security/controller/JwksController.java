@@ -0,0 +1,34 @@
+package com.example.demo.security.controller;
+
+import com.example.demo.security.service.JwtKeyManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Controller publishing the public keys tokens are signed with, so other services can verify tokens locally.
+ */
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    // Manager of the signing keys
+    private final JwtKeyManager jwtKeyManager;
+
+    /**
+     * Endpoint to retrieve the public signing keys as a JWK set.
+     * Clients may cache the response for a few minutes and should fetch it again when they see an unknown "kid".
+     * @return JWK set of the keys accepted for verification.
+     */
+    @GetMapping(path = "/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> getJwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic())
+                .body(jwtKeyManager.getJwks());
+    }
+}
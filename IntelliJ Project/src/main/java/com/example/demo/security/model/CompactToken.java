@@ -0,0 +1,36 @@
+package com.example.demo.security.model;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+/**
+ * Claims of a compact internal token whose MAC has already been verified.
+ */
+@Value
+public class CompactToken {
+
+    // Numeric id of the user the token was issued to
+    long userId;
+
+    // Roles of the user, one bit per Role ordinal
+    int roles;
+
+    // Id (jti claim) of the JWT the token was exchanged for, as the two halves of the UUID; the token is revoked with it
+    long parentTokenIdHigh;
+    long parentTokenIdLow;
+
+    // Time the token was issued, in epoch seconds
+    long issuedAt;
+
+    // Time the token expires, in epoch seconds
+    long expiresAt;
+
+    /**
+     * Returns the id of the parent JWT in its string form; only needed when the id is shown or stored.
+     * @return Id (jti claim) of the JWT the token was exchanged for.
+     */
+    public String getParentTokenId() {
+        return new UUID(parentTokenIdHigh, parentTokenIdLow).toString();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.demo.security.model;
+
+import com.example.demo.user.roles.Role;
+import lombok.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+
+/**
+ * Principal of a request authenticated with a compact token, built from the token's claims without loading the user.
+ * Exposes the id and the role like the User loaded for a JWT does. Compact tokens carry no email, so the username is
+ * the numeric user id.
+ */
+@Value
+public class CompactTokenPrincipal implements UserDetails {
+
+    // Numeric id of the user the token was issued to
+    long id;
+
+    // Role of the user
+    Role role;
+
+    /**
+     * Returns the authorities of the role, shared by every principal with the same role.
+     * @return A collection of granted authorities.
+     */
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return role.getAuthorities();
+    }
+
+    /**
+     * Compact tokens carry no password.
+     * @return null.
+     */
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    /**
+     * Returns the numeric user id as the username, since compact tokens carry no email.
+     * @return Decimal user id.
+     */
+    @Override
+    public String getUsername() {
+        return Long.toString(id);
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.demo.security.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entity representing an issued refresh token, used when refresh tokens are persisted.
+ * Only the hash of the token is stored.
+ */
+@Entity
+@Table(name = "refresh_token", indexes = @Index(name = "refresh_token_expires_at_idx", columnList = "expires_at"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshToken {
+
+    // Base64 encoded SHA-256 hash of the token
+    @Id
+    @Column(name = "token_hash", length = 44)
+    private String tokenHash;
+
+    // Email of the user the token was issued to
+    private String email;
+
+    // Expiry of the token in epoch milliseconds
+    @Column(name = "expires_at")
+    private long expiresAt;
+}
@@ -0,0 +1,60 @@
+package com.example.demo.security.model;
+
+import io.jsonwebtoken.Claims;
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Immutable view of a JWT whose signature has already been verified.
+ * Holds only the claims the application needs, so a token is parsed once and the result can be shared between requests.
+ */
+@Value
+public class VerifiedToken {
+
+    // Unique id of the token (jti claim), used to revoke it; null for tokens issued without one
+    String id;
+
+    // Subject of the token (in this case, the user's email)
+    String subject;
+
+    // Authorities carried in the "roles" claim
+    List<String> roles;
+
+    // Time the token was issued, or null if the claim is missing
+    Instant issuedAt;
+
+    // Time the token expires, or null for tokens without an expiration
+    Instant expiration;
+
+    /**
+     * Builds a verified token from the claims of a successfully parsed JWT.
+     * @param claims Claims of a JWT whose signature has been checked.
+     * @return VerifiedToken instance.
+     */
+    public static VerifiedToken from(Claims claims) {
+        List<?> roles = claims.get("roles", List.class);
+        return new VerifiedToken(
+                claims.getId(),
+                claims.getSubject(),
+                roles == null ? List.of() : roles.stream().map(String::valueOf).toList(),
+                toInstant(claims.getIssuedAt()),
+                toInstant(claims.getExpiration())
+        );
+    }
+
+    /**
+     * Checks if the token has expired at the given point in time.
+     * @param now Point in time to check against.
+     * @return true if the token has expired, false otherwise.
+     */
+    public boolean isExpired(Instant now) {
+        return expiration != null && expiration.isBefore(now);
+    }
+
+    private static Instant toInstant(Date date) {
+        return date == null ? null : date.toInstant();
+    }
+}
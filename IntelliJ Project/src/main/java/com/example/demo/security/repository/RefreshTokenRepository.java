@@ -0,0 +1,31 @@
+package com.example.demo.security.repository;
+
+import com.example.demo.security.model.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, String> {
+
+    /**
+     * Deletes a token by its hash.
+     * @param tokenHash Hash of the token.
+     * @return 1 if this call deleted the token, 0 if it did not exist or was deleted concurrently.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshToken t where t.tokenHash = :tokenHash")
+    int deleteByTokenHash(@Param("tokenHash") String tokenHash);
+
+    /**
+     * Deletes every token that expired at or before the given time.
+     * @param now Current time in epoch milliseconds.
+     * @return Number of deleted tokens.
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshToken t where t.expiresAt <= :now")
+    int deleteExpired(@Param("now") long now);
+}
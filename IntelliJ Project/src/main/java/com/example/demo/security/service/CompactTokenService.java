@@ -0,0 +1,210 @@
+package com.example.demo.security.service;
+
+import com.example.demo.security.model.CompactToken;
+import com.example.demo.security.model.CompactTokenPrincipal;
+import com.example.demo.user.roles.Role;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Issues and verifies compact tokens for internal service-to-service calls.
+ * A compact token is a fixed 61-byte layout, Base64url encoded behind the "ct1." prefix:
+ * <pre>
+ * version (1) | user id (8) | role bitmask (4) | parent token id (16) | issued at, epoch seconds (8)
+ *     | expires at, epoch seconds (8) | MAC (16)
+ * </pre>
+ * The MAC is HMAC-SHA256 over the preceding bytes, truncated to 128 bits. Verifying a token reads fixed offsets,
+ * so no JSON parsing or reflection is involved. A compact token is exchanged for a JWT and carries that JWT's id, so it
+ * is revoked with it and never outlives it. The format is only enabled when a shared secret is configured.
+ */
+@Service
+public class CompactTokenService {
+
+    // Prefix telling compact tokens apart from JWTs, which always start with "eyJ"
+    public static final String PREFIX = "ct1.";
+
+    // Version byte of the layout
+    private static final byte VERSION = 1;
+
+    // Sizes of the layout in bytes
+    private static final int PAYLOAD_LENGTH = 1 + Long.BYTES + Integer.BYTES + 2 * Long.BYTES + Long.BYTES + Long.BYTES;
+    private static final int MAC_LENGTH = 16;
+    private static final int TOKEN_LENGTH = PAYLOAD_LENGTH + MAC_LENGTH;
+
+    // Length of a token with its prefix, Base64 encoded without padding
+    private static final int ENCODED_LENGTH = PREFIX.length() + (TOKEN_LENGTH * 4 + 2) / 3;
+
+    // Algorithm of the MAC
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    // Roles by ordinal, matching the bits of the bitmask
+    private static final Role[] ROLES = Role.values();
+
+    // Key of the MAC, or null when compact tokens are disabled
+    private final SecretKeySpec key;
+
+    // How long an issued token stays valid
+    private final long timeToLiveSeconds;
+
+    // MAC instances are not thread-safe, so each thread keeps its own
+    private final ThreadLocal<Mac> macs;
+
+    /**
+     * Creates the service with the configured secret.
+     * @param secret Base64 encoded secret of at least 32 bytes shared with the internal services; empty to disable the format.
+     * @param timeToLive How long an issued token stays valid.
+     */
+    public CompactTokenService(@Value("${security.compact-token.secret:}") String secret,
+                               @Value("${security.compact-token.time-to-live:PT5M}") Duration timeToLive) {
+        if (secret.isBlank()) {
+            this.key = null;
+        } else {
+            byte[] keyBytes = Base64.getDecoder().decode(secret);
+            if (keyBytes.length < 32) {
+                throw new IllegalArgumentException("The compact token secret must be at least 32 bytes long.");
+            }
+            this.key = new SecretKeySpec(keyBytes, MAC_ALGORITHM);
+        }
+        this.timeToLiveSeconds = timeToLive.toSeconds();
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    /**
+     * Checks if compact tokens can be issued and verified.
+     * @return true if a secret is configured.
+     */
+    public boolean isEnabled() {
+        return key != null;
+    }
+
+    /**
+     * Issues a compact token for a user in exchange for one of the user's JWTs.
+     * @param userId Numeric id of the user.
+     * @param authorities Authorities of the user; those that are not roles are left out.
+     * @param parentTokenId Id (jti claim) of the JWT the token is exchanged for; revoking it revokes the compact token.
+     * @param parentExpiration Expiration of the JWT, or null if it has none; the compact token expires no later.
+     * @return Compact token, including its prefix.
+     * @throws IllegalStateException if compact tokens are disabled.
+     * @throws IllegalArgumentException if the parent token id is not a UUID in its canonical, lower-case form.
+     */
+    public String issue(long userId, Collection<? extends GrantedAuthority> authorities, String parentTokenId,
+                        Instant parentExpiration) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Compact tokens are disabled.");
+        }
+        int roles = 0;
+        for (GrantedAuthority authority : authorities) {
+            for (Role role : ROLES) {
+                if (role.name().equals(authority.getAuthority())) {
+                    roles |= 1 << role.ordinal();
+                }
+            }
+        }
+        UUID parentId = UUID.fromString(parentTokenId);
+        // Revocation checks rebuild the id from the token, so it must be in the canonical form JWT ids are issued in
+        if (!parentId.toString().equals(parentTokenId)) {
+            throw new IllegalArgumentException("The parent token id is not a lower-case UUID.");
+        }
+        long now = System.currentTimeMillis() / 1000;
+        long expiresAt = now + timeToLiveSeconds;
+        if (parentExpiration != null) {
+            expiresAt = Math.min(expiresAt, parentExpiration.getEpochSecond());
+        }
+
+        ByteBuffer token = ByteBuffer.allocate(TOKEN_LENGTH)
+                .put(VERSION)
+                .putLong(userId)
+                .putInt(roles)
+                .putLong(parentId.getMostSignificantBits())
+                .putLong(parentId.getLeastSignificantBits())
+                .putLong(now)
+                .putLong(expiresAt);
+        byte[] bytes = token.array();
+        token.put(sign(bytes), 0, MAC_LENGTH);
+        return PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Verifies a compact token.
+     * Invalid tokens are reported by returning null rather than by throwing, so rejecting them stays cheap.
+     * @param token Compact token, including its prefix.
+     * Whether the parent token has been revoked is left to the caller.
+     * @return Claims of the token, or null if the token is malformed, has an invalid MAC, carries no role or has expired.
+     */
+    public CompactToken verify(String token) {
+        if (!isEnabled() || token.length() != ENCODED_LENGTH || !token.startsWith(PREFIX)) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (bytes.length != TOKEN_LENGTH || bytes[0] != VERSION || !macMatches(bytes)) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, PAYLOAD_LENGTH - 1);
+        long userId = buffer.getLong();
+        int roles = buffer.getInt();
+        long parentTokenIdHigh = buffer.getLong();
+        long parentTokenIdLow = buffer.getLong();
+        long issuedAt = buffer.getLong();
+        long expiresAt = buffer.getLong();
+        if (roles <= 0 || roles >= 1 << ROLES.length || expiresAt <= System.currentTimeMillis() / 1000) {
+            return null;
+        }
+        return new CompactToken(userId, roles, parentTokenIdHigh, parentTokenIdLow, issuedAt, expiresAt);
+    }
+
+    /**
+     * Builds the principal of a verified token from its claims alone, without loading the user.
+     * Users have a single role, so the principal gets the first role of the bitmask, and with it the role's shared
+     * authorities.
+     * @param token Verified compact token.
+     * @return Principal carrying the user id and the role of the token.
+     */
+    public CompactTokenPrincipal toPrincipal(CompactToken token) {
+        return new CompactTokenPrincipal(token.getUserId(), ROLES[Integer.numberOfTrailingZeros(token.getRoles())]);
+    }
+
+    /**
+     * Compares the MAC of the token with the expected one in constant time.
+     */
+    private boolean macMatches(byte[] bytes) {
+        byte[] expected = sign(bytes);
+        int difference = 0;
+        for (int i = 0; i < MAC_LENGTH; i++) {
+            difference |= expected[i] ^ bytes[PAYLOAD_LENGTH + i];
+        }
+        return difference == 0;
+    }
+
+    private byte[] sign(byte[] bytes) {
+        Mac mac = macs.get();
+        mac.update(bytes, 0, PAYLOAD_LENGTH);
+        return mac.doFinal();
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available.", e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo.security.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Refresh token store held in process memory.
+ * Each token costs one map entry: the 256-bit hash packed into four longs, the user's email and a primitive expiry
+ * timestamp. Expired tokens are swept in the background. Tokens do not survive a restart; use
+ * security.refresh-token.store=jpa for that. Selected with security.refresh-token.store=memory (the default).
+ */
+@Component
+@ConditionalOnProperty(name = "security.refresh-token.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryRefreshTokenStore implements RefreshTokenStore {
+
+    // Issued tokens keyed by their hash
+    private final Map<TokenHash, Entry> tokens = new ConcurrentHashMap<>();
+
+    // How long an issued token stays valid
+    private final long timeToLiveMillis;
+
+    /**
+     * Creates the store with the configured token lifetime.
+     * @param timeToLive How long an issued token stays valid.
+     */
+    public InMemoryRefreshTokenStore(@Value("${security.refresh-token.time-to-live:P14D}") Duration timeToLive) {
+        this.timeToLiveMillis = timeToLive.toMillis();
+    }
+
+    @Override
+    public String issue(String email) {
+        String refreshToken = RefreshTokens.generate();
+        tokens.put(TokenHash.of(refreshToken), new Entry(email, System.currentTimeMillis() + timeToLiveMillis));
+        return refreshToken;
+    }
+
+    @Override
+    public Optional<String> consume(String refreshToken) {
+        // Removing the entry is atomic, so a token can be used by at most one concurrent refresh
+        Entry entry = tokens.remove(TokenHash.of(refreshToken));
+        if (entry == null || entry.expiresAtMillis() <= System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.email());
+    }
+
+    @Override
+    public boolean consume(String refreshToken, String email) {
+        TokenHash hash = TokenHash.of(refreshToken);
+        Entry entry = tokens.get(hash);
+        // Removing only the entry that was checked keeps a concurrent refresh from using the token twice
+        return entry != null && entry.email().equals(email) && tokens.remove(hash, entry);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${security.refresh-token.sweep-interval:PT1M}")
+    public int removeExpired() {
+        long now = System.currentTimeMillis();
+        int before = tokens.size();
+        tokens.values().removeIf(entry -> entry.expiresAtMillis() <= now);
+        return Math.max(0, before - tokens.size());
+    }
+
+    /**
+     * SHA-256 hash of a token, packed into four longs.
+     */
+    private record TokenHash(long first, long second, long third, long fourth) {
+
+        static TokenHash of(String refreshToken) {
+            ByteBuffer hash = ByteBuffer.wrap(RefreshTokens.hash(refreshToken));
+            return new TokenHash(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+        }
+    }
+
+    /**
+     * Owner and expiry of an issued token.
+     */
+    private record Entry(String email, long expiresAtMillis) {
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.demo.security.service;
+
+import com.example.demo.security.model.RefreshToken;
+import com.example.demo.security.repository.RefreshTokenRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Refresh token store persisted through JPA, so sessions survive restarts and are shared between instances.
+ * Selected with security.refresh-token.store=jpa.
+ */
+@Component
+@ConditionalOnProperty(name = "security.refresh-token.store", havingValue = "jpa")
+public class JpaRefreshTokenStore implements RefreshTokenStore {
+
+    // Repository to interact with refresh token data in the database
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    // How long an issued token stays valid
+    private final long timeToLiveMillis;
+
+    /**
+     * Creates the store with the configured token lifetime.
+     * @param refreshTokenRepository Repository to interact with refresh token data in the database.
+     * @param timeToLive How long an issued token stays valid.
+     */
+    public JpaRefreshTokenStore(RefreshTokenRepository refreshTokenRepository,
+                                @Value("${security.refresh-token.time-to-live:P14D}") Duration timeToLive) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.timeToLiveMillis = timeToLive.toMillis();
+    }
+
+    @Override
+    public String issue(String email) {
+        String refreshToken = RefreshTokens.generate();
+        refreshTokenRepository.save(new RefreshToken(hash(refreshToken), email, System.currentTimeMillis() + timeToLiveMillis));
+        return refreshToken;
+    }
+
+    @Override
+    public Optional<String> consume(String refreshToken) {
+        String tokenHash = hash(refreshToken);
+        Optional<RefreshToken> token = refreshTokenRepository.findById(tokenHash);
+        // Only the caller whose delete succeeds may use the token, so concurrent refreshes cannot both rotate it
+        if (token.isEmpty() || refreshTokenRepository.deleteByTokenHash(tokenHash) == 0
+                || token.get().getExpiresAt() <= System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+        return Optional.of(token.get().getEmail());
+    }
+
+    @Override
+    public boolean consume(String refreshToken, String email) {
+        String tokenHash = hash(refreshToken);
+        Optional<RefreshToken> token = refreshTokenRepository.findById(tokenHash);
+        return token.isPresent() && token.get().getEmail().equals(email)
+                && refreshTokenRepository.deleteByTokenHash(tokenHash) > 0;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${security.refresh-token.sweep-interval:PT1M}")
+    public int removeExpired() {
+        return refreshTokenRepository.deleteExpired(System.currentTimeMillis());
+    }
+
+    private static String hash(String refreshToken) {
+        return Base64.getEncoder().encodeToString(RefreshTokens.hash(refreshToken));
+    }
+}
@@ -0,0 +1,486 @@
+package com.example.demo.security.service;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.MacAlgorithm;
+import io.jsonwebtoken.security.SecureDigestAlgorithm;
+import io.jsonwebtoken.security.SignatureException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.EdECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Holds the keys used to sign and verify JWT tokens.
+ * Tokens are signed with the active key and carry its id in the "kid" header; verification looks the key up by that id,
+ * so several keys can be accepted at once. Keys are built once, and a single parser resolves them per token.
+ * HMAC keys are derived from the shared secret: when rotation is enabled every instance switches to the key of the new
+ * rotation period at the same time, and the previous key is still accepted for a grace period so that tokens signed
+ * with it stay valid until they expire.
+ * RS256, ES256 and EdDSA key pairs are read from the key directory, which holds the same files on every instance, so
+ * all instances sign with the same key and publish the same JWK set. Key pairs are rotated by changing the files.
+ */
+@Slf4j
+@Component
+public class JwtKeyManager {
+
+    // Id of the key built from the shared secret, also used for tokens issued without a "kid" header
+    static final String DEFAULT_KEY_ID = "default";
+
+    // Prefix of the ids of HMAC keys derived for a rotation period, followed by the number of the period
+    static final String DERIVED_KEY_PREFIX = "p";
+
+    // Suffix of the public key files of the key directory; the private key of "<kid>.pub.pem" is "<kid>.pem"
+    static final String PUBLIC_KEY_SUFFIX = ".pub.pem";
+    static final String PRIVATE_KEY_SUFFIX = ".pem";
+
+    // Key types the key files may hold, as named by KeyFactory
+    private static final List<String> KEY_TYPES = List.of("RSA", "EC", "EdDSA");
+
+    // Algorithm tokens are signed with
+    private final SecureDigestAlgorithm<Key, Key> algorithm;
+
+    // How long an HMAC key stays active before it is replaced, or zero to never rotate
+    private final Duration rotationInterval;
+
+    // How long a replaced key is still accepted for verification
+    private final Duration gracePeriod;
+
+    // Shared secret the HMAC keys are built or derived from, or null for key pairs
+    private final byte[] secret;
+
+    // Keys accepted for verification, by id
+    private final Map<String, SigningKey> keys = new ConcurrentHashMap<>();
+
+    // Key new tokens are signed with
+    private volatile SigningKey activeKey;
+
+    // Public keys in JWK format, rebuilt when the set of keys changes
+    private volatile Map<String, Object> jwks;
+
+    // Parser resolving the verification key of each token by its "kid" header
+    private final JwtParser parser = Jwts.parser()
+            .keyLocator(new LocatorAdapter<Key>() {
+                @Override
+                protected Key locate(JwsHeader header) {
+                    return resolveVerificationKey(header);
+                }
+            })
+            .build();
+
+    /**
+     * Creates the key manager and its keys.
+     * HS256 starts with the shared secret, or with the key derived for the current period when rotation is enabled;
+     * tokens signed with the shared secret are then still accepted for the grace period. Other algorithms sign with
+     * the key pair of the key directory named by the signing key id.
+     * The public keys of the key directory are accepted and published whatever the algorithm, so a key can be
+     * distributed before tokens are signed with it, and kept after, until the tokens signed with it have expired.
+     * @param algorithm Signature algorithm: HS256, RS256, ES256 or EdDSA (Ed25519 or Ed448).
+     * @param secret Base64 secret of at least 32 bytes shared by all instances; required for HS256, there is no default.
+     * @param keyDirectory Directory of "kid.pub.pem" X.509 public keys, each with an optional "kid.pem" PKCS#8 private
+     *                     key; required for key pairs.
+     * @param signingKeyId Id of the key pair tokens are signed with; may be empty if only one private key is present.
+     * @param rotationInterval How long an HMAC key stays active before it is replaced; zero disables rotation.
+     * @param gracePeriod How long a replaced key is still accepted; should be at least the token lifetime.
+     * @throws IllegalStateException if the secret or the key pairs the algorithm needs are not configured.
+     */
+    public JwtKeyManager(@Value("${security.jwt.algorithm:HS256}") String algorithm,
+                         @Value("${security.jwt.secret:}") String secret,
+                         @Value("${security.jwt.key-directory:}") String keyDirectory,
+                         @Value("${security.jwt.signing-key-id:}") String signingKeyId,
+                         @Value("${security.jwt.rotation-interval:PT0S}") Duration rotationInterval,
+                         @Value("${security.jwt.grace-period:PT15M}") Duration gracePeriod) {
+        this.algorithm = forName(algorithm);
+        this.rotationInterval = rotationInterval;
+        this.gracePeriod = gracePeriod;
+        if (keyDirectory != null && !keyDirectory.isBlank()) {
+            for (SigningKey key : loadKeyPairs(Path.of(keyDirectory))) {
+                keys.put(key.id(), key);
+            }
+        }
+
+        if (!isHmac(this.algorithm)) {
+            if (!rotationInterval.isZero()) {
+                throw new IllegalStateException("security.jwt.rotation-interval applies to HS256 only; key pairs are "
+                        + "rotated through security.jwt.key-directory.");
+            }
+            this.secret = null;
+            activate(signingKeyPair(signingKeyId));
+            return;
+        }
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("security.jwt.secret must be set to a Base64 secret of at least 32 bytes "
+                    + "for HS256.");
+        }
+        this.secret = Decoders.BASE64.decode(secret);
+
+        SigningKey sharedSecretKey = SigningKey.hmac(DEFAULT_KEY_ID, Keys.hmacShaKeyFor(this.secret), Instant.now());
+        if (rotationInterval.isZero()) {
+            activate(sharedSecretKey);
+        } else {
+            keys.put(DEFAULT_KEY_ID, sharedSecretKey.retire(Instant.now().plus(gracePeriod)));
+            activate(derivedKey(periodOf(Instant.now())));
+        }
+    }
+
+    /**
+     * Returns the key new tokens are signed with.
+     * @return Active signing key.
+     */
+    public SigningKey getActiveKey() {
+        return activeKey;
+    }
+
+    /**
+     * Returns the parser that verifies tokens signed with any accepted key.
+     * @return Shared, thread-safe parser.
+     */
+    public JwtParser getParser() {
+        return parser;
+    }
+
+    /**
+     * Returns the public keys accepted for verification as a JWK set.
+     * HMAC keys are secret and never published.
+     * @return JWK set with a "keys" member.
+     */
+    public Map<String, Object> getJwks() {
+        return jwks;
+    }
+
+    /**
+     * Switches to the HMAC key of the current rotation period if rotation is enabled,
+     * and drops replaced keys whose grace period is over.
+     */
+    @Scheduled(fixedDelayString = "${security.jwt.rotation-check-interval:PT1M}")
+    public void rotateIfDue() {
+        Instant now = Instant.now();
+        if (!rotationInterval.isZero()) {
+            // Every instance switches to the key of the new period, derived from the shared secret
+            long period = periodOf(now);
+            if (!activeKey.id().equals(DERIVED_KEY_PREFIX + period)) {
+                replaceActiveKey(derivedKey(period));
+            }
+        }
+        removeRetiredKeys(now);
+    }
+
+    private synchronized void replaceActiveKey(SigningKey next) {
+        SigningKey previous = activeKey;
+        keys.put(previous.id(), previous.retire(Instant.now().plus(gracePeriod)));
+        activate(next);
+        log.info("Rotated JWT signing key from {} to {}", previous.id(), next.id());
+    }
+
+    private synchronized void activate(SigningKey key) {
+        keys.put(key.id(), key);
+        jwks = buildJwks();
+        activeKey = key;
+    }
+
+    private synchronized void removeRetiredKeys(Instant now) {
+        if (keys.values().removeIf(key -> key.retiresAt() != null && key.retiresAt().isBefore(now))) {
+            jwks = buildJwks();
+        }
+    }
+
+    private Key resolveVerificationKey(JwsHeader header) {
+        String keyId = header.getKeyId() == null ? DEFAULT_KEY_ID : header.getKeyId();
+        SigningKey key = keys.get(keyId);
+        if (key == null) {
+            key = acceptedDerivedKey(keyId);
+        }
+        if (key == null || !key.algorithm().getId().equals(header.getAlgorithm())) {
+            throw new SignatureException("Token is not signed with an accepted key.");
+        }
+        return key.verificationKey();
+    }
+
+    /**
+     * Derives the key of another instance's token: a period that has not started here yet (clocks differ slightly, or
+     * the period has just begun) or one whose key this instance never held, e.g. because it started later.
+     * Only the periods of keys still within their grace period are accepted, so few keys are ever derived.
+     * @return The derived key, or null if the id is not the id of an accepted period.
+     */
+    private SigningKey acceptedDerivedKey(String keyId) {
+        if (secret == null || rotationInterval.isZero() || !keyId.startsWith(DERIVED_KEY_PREFIX)) {
+            return null;
+        }
+        long period;
+        try {
+            period = Long.parseLong(keyId.substring(DERIVED_KEY_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        Instant now = Instant.now();
+        Instant retiresAt = periodStart(period + 1).plus(gracePeriod);
+        if (period > periodOf(now) + 1 || !retiresAt.isAfter(now)) {
+            return null;
+        }
+        SigningKey key = derivedKey(period).retire(retiresAt);
+        SigningKey known = keys.putIfAbsent(keyId, key);
+        return known != null ? known : key;
+    }
+
+    /**
+     * Derives the HMAC key of a rotation period: HMAC-SHA256 of the period number under the shared secret.
+     */
+    SigningKey derivedKey(long period) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            byte[] key = mac.doFinal(("jwt-signing-key:" + period).getBytes(StandardCharsets.US_ASCII));
+            return SigningKey.hmac(DERIVED_KEY_PREFIX + period, Keys.hmacShaKeyFor(key), periodStart(period));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot derive JWT signing key", e);
+        }
+    }
+
+    private long periodOf(Instant instant) {
+        return instant.toEpochMilli() / rotationInterval.toMillis();
+    }
+
+    private Instant periodStart(long period) {
+        return Instant.ofEpochMilli(period * rotationInterval.toMillis());
+    }
+
+    /**
+     * Picks the key pair tokens are signed with: the one with the given id, or the only one with a private key.
+     */
+    private SigningKey signingKeyPair(String signingKeyId) {
+        SigningKey key;
+        if (signingKeyId == null || signingKeyId.isBlank()) {
+            List<SigningKey> privateKeys = keys.values().stream().filter(k -> k.signingKey() != null).toList();
+            if (privateKeys.isEmpty()) {
+                throw new IllegalStateException("security.jwt.key-directory must hold the private key to sign "
+                        + algorithm.getId() + " tokens with.");
+            }
+            if (privateKeys.size() > 1) {
+                throw new IllegalStateException("security.jwt.signing-key-id must name the key pair to sign with when "
+                        + "security.jwt.key-directory holds " + privateKeys.size() + " private keys.");
+            }
+            key = privateKeys.get(0);
+        } else {
+            key = keys.get(signingKeyId);
+            if (key == null || key.signingKey() == null) {
+                throw new IllegalStateException("security.jwt.key-directory holds no private key for the signing key "
+                        + "id " + signingKeyId + ".");
+            }
+        }
+        if (!key.algorithm().getId().equals(algorithm.getId())) {
+            throw new IllegalStateException("JWT signing key " + key.id() + " is a " + key.algorithm().getId()
+                    + " key, not " + algorithm.getId() + ".");
+        }
+        return key;
+    }
+
+    /**
+     * Reads the key pairs of the key directory: every "kid.pub.pem" public key, with the private key of "kid.pem" if
+     * present. A private key is checked against its public key, so a mismatched pair fails at startup instead of
+     * signing tokens no one can verify.
+     */
+    private static List<SigningKey> loadKeyPairs(Path directory) {
+        List<SigningKey> keyPairs = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path publicKeyFile : files.filter(f -> f.getFileName().toString().endsWith(PUBLIC_KEY_SUFFIX)).toList()) {
+                String fileName = publicKeyFile.getFileName().toString();
+                String keyId = fileName.substring(0, fileName.length() - PUBLIC_KEY_SUFFIX.length());
+                PublicKey publicKey = readPublicKey(publicKeyFile);
+                SecureDigestAlgorithm<Key, Key> keyAlgorithm = algorithmOf(keyId, publicKey);
+                Path privateKeyFile = directory.resolve(keyId + PRIVATE_KEY_SUFFIX);
+                PrivateKey privateKey = Files.exists(privateKeyFile)
+                        ? readPrivateKey(privateKeyFile, publicKey.getAlgorithm())
+                        : null;
+                if (privateKey != null) {
+                    checkKeyPair(keyId, keyAlgorithm, privateKey, publicKey);
+                }
+                keyPairs.add(new SigningKey(keyId, keyAlgorithm, privateKey, publicKey, Instant.now(), null));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the JWT keys of " + directory, e);
+        }
+        log.info("Loaded JWT key pairs {} from {}", keyPairs.stream().map(SigningKey::id).toList(), directory);
+        return keyPairs;
+    }
+
+    private static PublicKey readPublicKey(Path file) throws IOException {
+        X509EncodedKeySpec keySpec = new X509EncodedKeySpec(readPem(file));
+        for (String keyType : KEY_TYPES) {
+            try {
+                return KeyFactory.getInstance(keyType).generatePublic(keySpec);
+            } catch (InvalidKeySpecException e) {
+                // Not a key of this type; try the next one
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot read JWT public key " + file, e);
+            }
+        }
+        throw new IllegalStateException(file + " is not an RSA, EC or EdDSA public key in X.509 PEM format.");
+    }
+
+    private static PrivateKey readPrivateKey(Path file, String keyType) throws IOException {
+        try {
+            return KeyFactory.getInstance(keyType).generatePrivate(new PKCS8EncodedKeySpec(readPem(file)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(file + " is not a " + keyType + " private key in PKCS#8 PEM format.", e);
+        }
+    }
+
+    private static byte[] readPem(Path file) throws IOException {
+        StringBuilder base64 = new StringBuilder();
+        for (String line : Files.readAllLines(file, StandardCharsets.US_ASCII)) {
+            if (!line.startsWith("-----")) {
+                base64.append(line.trim());
+            }
+        }
+        return Base64.getDecoder().decode(base64.toString());
+    }
+
+    private static void checkKeyPair(String keyId, SecureDigestAlgorithm<Key, Key> keyAlgorithm,
+                                     PrivateKey privateKey, PublicKey publicKey) {
+        String token = Jwts.builder().subject(keyId).signWith(privateKey, keyAlgorithm).compact();
+        try {
+            Jwts.parser().verifyWith(publicKey).build().parseSignedClaims(token);
+        } catch (JwtException e) {
+            throw new IllegalStateException("The private key of JWT key " + keyId + " does not match its public key.", e);
+        }
+    }
+
+    /**
+     * Returns the algorithm a key pair signs with, from the type of its public key.
+     */
+    private static SecureDigestAlgorithm<Key, Key> algorithmOf(String keyId, PublicKey publicKey) {
+        if (publicKey instanceof RSAPublicKey) {
+            return forName("RS256");
+        } else if (publicKey instanceof ECPublicKey ec && ec.getParams().getCurve().getField().getFieldSize() == 256) {
+            return forName("ES256");
+        } else if (publicKey instanceof EdECPublicKey) {
+            return forName("EdDSA");
+        }
+        throw new IllegalStateException("JWT key " + keyId + " is neither an RSA, a P-256, an Ed25519 nor an Ed448 key.");
+    }
+
+    /**
+     * Looks up a supported signature algorithm by its JWA name.
+     */
+    @SuppressWarnings("unchecked")
+    private static SecureDigestAlgorithm<Key, Key> forName(String name) {
+        return switch (name) {
+            case "HS256", "RS256", "ES256", "EdDSA" -> (SecureDigestAlgorithm<Key, Key>) Jwts.SIG.get().forKey(name);
+            default -> throw new IllegalArgumentException("Unsupported JWT signature algorithm: " + name);
+        };
+    }
+
+    private static boolean isHmac(SecureDigestAlgorithm<?, ?> algorithm) {
+        return algorithm instanceof MacAlgorithm;
+    }
+
+    private Map<String, Object> buildJwks() {
+        List<Map<String, Object>> publicKeys = new ArrayList<>();
+        for (SigningKey key : keys.values()) {
+            if (!isHmac(key.algorithm())) {
+                publicKeys.add(toJwk(key));
+            }
+        }
+        return Map.of("keys", List.copyOf(publicKeys));
+    }
+
+    private static Map<String, Object> toJwk(SigningKey key) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        if (key.verificationKey() instanceof RSAPublicKey rsa) {
+            jwk.put("kty", "RSA");
+            jwk.put("n", encode(rsa.getModulus(), 0));
+            jwk.put("e", encode(rsa.getPublicExponent(), 0));
+        } else if (key.verificationKey() instanceof ECPublicKey ec) {
+            int size = (ec.getParams().getCurve().getField().getFieldSize() + 7) / 8;
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("x", encode(ec.getW().getAffineX(), size));
+            jwk.put("y", encode(ec.getW().getAffineY(), size));
+        } else if (key.verificationKey() instanceof EdECPublicKey ed) {
+            // The X.509 encoding of an EdDSA key ends with the key itself: 32 bytes for Ed25519, 57 for Ed448
+            String curve = ed.getParams().getName();
+            int size = "Ed25519".equals(curve) ? 32 : 57;
+            byte[] encoded = ed.getEncoded();
+            jwk.put("kty", "OKP");
+            jwk.put("crv", curve);
+            jwk.put("x", Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(Arrays.copyOfRange(encoded, encoded.length - size, encoded.length)));
+        }
+        jwk.put("use", "sig");
+        jwk.put("alg", key.algorithm().getId());
+        jwk.put("kid", key.id());
+        return jwk;
+    }
+
+    /**
+     * Encodes an unsigned big-endian integer as Base64url, left-padded with zeros to the given length.
+     */
+    private static String encode(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        if (bytes.length < length) {
+            byte[] padded = new byte[length];
+            System.arraycopy(bytes, 0, padded, length - bytes.length, bytes.length);
+            bytes = padded;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * A key tokens can be signed or verified with.
+     * @param id Key id, sent in the "kid" header.
+     * @param algorithm Signature algorithm of the key.
+     * @param signingKey Secret or private key used to sign, or null for a public key that is only accepted.
+     * @param verificationKey Secret or public key used to verify.
+     * @param activatedAt Time the key was created or loaded.
+     * @param retiresAt Time the key stops being accepted, or null while it is active.
+     */
+    public record SigningKey(String id, SecureDigestAlgorithm<Key, Key> algorithm, Key signingKey, Key verificationKey,
+                             Instant activatedAt, Instant retiresAt) {
+
+        static SigningKey hmac(String id, Key secretKey, Instant activatedAt) {
+            return new SigningKey(id, forName("HS256"), secretKey, secretKey, activatedAt, null);
+        }
+
+        SigningKey retire(Instant at) {
+            return new SigningKey(id, algorithm, signingKey, verificationKey, activatedAt, at);
+        }
+    }
+}
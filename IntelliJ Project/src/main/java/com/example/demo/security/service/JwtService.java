@@ -1,22 +1,19 @@
 package com.example.demo.security.service;
 
-import com.example.demo.configuration.DatabaseConfiguration;
+import com.example.demo.security.model.VerifiedToken;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtBuilder;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.KeyGenerator;
-import java.security.Key;
-import java.security.NoSuchAlgorithmException;
-import java.time.LocalDate;
+import java.time.Instant;
 import java.util.*;
-import java.util.function.Function;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 /**
  * Service class for handling JWT-related operations.
@@ -25,8 +22,36 @@ import java.util.stream.Collectors;
 @Service
 public class JwtService {
 
-    // Secret key for signing and verifying JWT tokens
-    private static final String SECRET_KEY = "E1FUGDN7CoxpR3/jtqwhBMED4nmFHiijlNLIpTPc0LrFOvih4w0X/UqyNcaKb4BK";
+    // Keys for signing and verifying JWT tokens
+    private final JwtKeyManager jwtKeyManager;
+
+    // Cache of tokens that have already been verified
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    // Time spent building and signing tokens
+    private final Timer generateTime;
+
+    // Email of the admin user, whose tokens do not expire; configuration, so every instance agrees on it
+    private final String adminEmail;
+
+    /**
+     * Creates the service and registers its metrics.
+     * @param jwtKeyManager Keys for signing and verifying JWT tokens.
+     * @param verifiedTokenCache Cache of tokens that have already been verified.
+     * @param meterRegistry Registry the service metrics are published to.
+     * @param adminEmail Email of the admin user, whose tokens do not expire.
+     */
+    public JwtService(JwtKeyManager jwtKeyManager,
+                      VerifiedTokenCache verifiedTokenCache,
+                      MeterRegistry meterRegistry,
+                      @Value("${app.admin.email:admin@gmail.com}") String adminEmail) {
+        this.jwtKeyManager = jwtKeyManager;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.adminEmail = adminEmail;
+        this.generateTime = Timer.builder("auth.jwt.generate")
+                .description("Time spent building and signing JWT tokens")
+                .register(meterRegistry);
+    }
 
     /**
      * Generates a JWT token for the given user details.
@@ -56,27 +81,27 @@ public class JwtService {
      * @return true if the token is valid, false otherwise.
      */
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return isTokenValid(verifyToken(token), userDetails);
     }
 
     /**
-     * Checks if the provided JWT token has expired.
-     * @param token JWT token.
-     * @return true if the token has expired, false otherwise.
+     * Validates an already verified token against the provided user details.
+     * @param token Verified token.
+     * @param userDetails UserDetails instance.
+     * @return true if the token is valid, false otherwise.
      */
-    private boolean isTokenExpired(String token) {
-        Date expiration = extractExpiration(token);
-        return expiration != null && expiration.before(new Date());
+    public boolean isTokenValid(VerifiedToken token, UserDetails userDetails) {
+        return token.getSubject().equals(userDetails.getUsername()) && !token.isExpired(Instant.now());
     }
 
     /**
-     * Extracts the expiration date from the JWT token.
-     * @param token JWT token.
-     * @return Date representing the expiration time of the token.
+     * Parses and verifies the JWT token once, returning the cached result for tokens that were already verified.
+     * @param jwt JWT token.
+     * @return Verified token.
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, has an invalid signature or has expired.
      */
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public VerifiedToken verifyToken(String jwt) {
+        return verifiedTokenCache.get(jwt, token -> VerifiedToken.from(extractAllClaims(token)));
     }
 
     /**
@@ -85,40 +110,36 @@ public class JwtService {
      * @return Username extracted from the token.
      */
     public String extractUsername(String jwt) {
-        return extractClaim(jwt, Claims::getSubject);
+        return verifyToken(jwt).getSubject();
     }
 
     /**
      * Generates a JWT token with the provided claims and user details.
+     * Every token gets a unique id (jti claim) so it can be revoked before it expires,
+     * and is signed with the active key, whose id is sent in the "kid" header.
      * @param extraClaims Additional claims to include in the token.
      * @param userDetails UserDetails instance.
      * @return Generated JWT token.
      */
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
+        long start = System.nanoTime();
+        JwtKeyManager.SigningKey signingKey = jwtKeyManager.getActiveKey();
         JwtBuilder jwtBuilder = Jwts
                 .builder()
-                .setClaims(extraClaims)
-                .setSubject(userDetails.getUsername())
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256);
+                .header().keyId(signingKey.id()).and()
+                .claims(extraClaims)
+                .id(UUID.randomUUID().toString())
+                .subject(userDetails.getUsername())
+                .issuedAt(new Date(System.currentTimeMillis()))
+                .signWith(signingKey.signingKey(), signingKey.algorithm());
 
-        if (!userDetails.getUsername().equals(DatabaseConfiguration.admin.getUsername())) {
-            jwtBuilder.setExpiration(new Date(System.currentTimeMillis() + 10000 * 60));
+        if (!userDetails.getUsername().equals(adminEmail)) {
+            jwtBuilder.expiration(new Date(System.currentTimeMillis() + 10000 * 60));
         }
 
-        return jwtBuilder.compact();
-    }
-
-    /**
-     * Extracts a specific claim from the JWT token.
-     * @param jwt JWT token.
-     * @param claimsResolver Function to extract the desired claim.
-     * @param <T> Type of the claim.
-     * @return Extracted claim.
-     */
-    public <T> T extractClaim(String jwt, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(jwt);
-        return claimsResolver.apply(claims);
+        String jwt = jwtBuilder.compact();
+        generateTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return jwt;
     }
 
     /**
@@ -127,20 +148,8 @@ public class JwtService {
      * @return Claims instance containing all claims from the token.
      */
     private Claims extractAllClaims(String jwt) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(jwt)
-                .getBody();
-    }
-
-    /**
-     * Retrieves the signing key used for JWT token generation and validation.
-     * @return Key used for signing the JWT.
-     */
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(SECRET_KEY);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return jwtKeyManager.getParser()
+                .parseSignedClaims(jwt)
+                .getPayload();
     }
 }
@@ -0,0 +1,140 @@
+package com.example.demo.security.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Factory for the application's password encoder.
+ * Builds a delegating encoder that stores hashes with an algorithm-id prefix (e.g. {bcrypt}) and, when calibration is
+ * enabled, measures hashing time on startup to pick the work factor that meets the configured target latency.
+ * Unprefixed hashes stored before the prefixes were introduced are matched as BCrypt.
+ */
+@Slf4j
+@Component
+public class PasswordEncoderFactory {
+
+    // Lowest accepted work factors, so calibration on a fast machine never weakens the hashes
+    private static final int BCRYPT_MIN_STRENGTH = 10;
+    private static final int PBKDF2_MIN_ITERATIONS = 310_000;
+    private static final int ARGON2_MIN_ITERATIONS = 2;
+
+    // Id of the algorithm used for new hashes: bcrypt, argon2 or pbkdf2
+    private final String algorithm;
+
+    // Whether the work factor is measured on startup
+    private final boolean calibrate;
+
+    // Hashing time the calibration aims for
+    private final Duration targetHashTime;
+
+    // Work factor pinned by configuration, or zero to calibrate or use the minimum
+    private final int workFactor;
+
+    /**
+     * Creates the factory with the configured hashing policy.
+     * @param algorithm Id of the algorithm used for new hashes.
+     * @param calibrate Whether the work factor is measured on startup.
+     * @param targetHashTime Hashing time the calibration aims for.
+     * @param workFactor Work factor of the configured algorithm, e.g. from an earlier calibration; skips the calibration
+     *                   when greater than zero. Never lowered below the minimum of the algorithm.
+     */
+    public PasswordEncoderFactory(@Value("${security.password.algorithm:bcrypt}") String algorithm,
+                                  @Value("${security.password.calibrate:true}") boolean calibrate,
+                                  @Value("${security.password.target-hash-time:PT0.1S}") Duration targetHashTime,
+                                  @Value("${security.password.work-factor:0}") int workFactor) {
+        this.algorithm = algorithm;
+        this.calibrate = calibrate;
+        this.targetHashTime = targetHashTime;
+        this.workFactor = workFactor;
+    }
+
+    /**
+     * Builds the delegating password encoder.
+     * @return PasswordEncoder that encodes with the configured algorithm and matches all supported algorithms.
+     */
+    public PasswordEncoder create() {
+        PasswordEncoder bcrypt = algorithm.equals("bcrypt")
+                ? new BCryptPasswordEncoder(calibrateLogarithmic(BCRYPT_MIN_STRENGTH, BCryptPasswordEncoder::new))
+                : new BCryptPasswordEncoder();
+        PasswordEncoder pbkdf2 = algorithm.equals("pbkdf2")
+                ? pbkdf2(calibrateLinear(PBKDF2_MIN_ITERATIONS, PasswordEncoderFactory::pbkdf2))
+                : pbkdf2(PBKDF2_MIN_ITERATIONS);
+        PasswordEncoder argon2 = algorithm.equals("argon2")
+                ? argon2(calibrateLinear(ARGON2_MIN_ITERATIONS, PasswordEncoderFactory::argon2))
+                : argon2(ARGON2_MIN_ITERATIONS);
+
+        Map<String, PasswordEncoder> encoders = Map.of("bcrypt", bcrypt, "pbkdf2", pbkdf2, "argon2", argon2);
+        if (!encoders.containsKey(algorithm)) {
+            throw new IllegalStateException("Unsupported password algorithm: " + algorithm);
+        }
+
+        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(algorithm, encoders);
+        passwordEncoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return passwordEncoder;
+    }
+
+    /**
+     * Picks a work factor whose cost doubles with every step, such as the BCrypt strength.
+     */
+    private int calibrateLogarithmic(int minimum, IntFunction<PasswordEncoder> encoderFactory) {
+        if (workFactor > 0) {
+            return Math.max(minimum, workFactor);
+        }
+        if (!calibrate) {
+            return minimum;
+        }
+        long measured = measure(encoderFactory.apply(minimum));
+        int steps = (int) Math.round(Math.log((double) targetHashTime.toNanos() / measured) / Math.log(2));
+        int workFactor = Math.min(31, minimum + Math.max(0, steps));
+        log.info("Calibrated {} work factor to {} ({} ms at {})", algorithm, workFactor, measured / 1_000_000, minimum);
+        return workFactor;
+    }
+
+    /**
+     * Picks a work factor whose cost grows linearly, such as PBKDF2 or Argon2 iterations.
+     */
+    private int calibrateLinear(int minimum, IntFunction<PasswordEncoder> encoderFactory) {
+        if (workFactor > 0) {
+            return Math.max(minimum, workFactor);
+        }
+        if (!calibrate) {
+            return minimum;
+        }
+        long measured = measure(encoderFactory.apply(minimum));
+        int workFactor = (int) Math.max(minimum, Math.min(Integer.MAX_VALUE, minimum * targetHashTime.toNanos() / measured));
+        log.info("Calibrated {} work factor to {} ({} ms at {})", algorithm, workFactor, measured / 1_000_000, minimum);
+        return workFactor;
+    }
+
+    /**
+     * Measures the fastest of a few encodings, after a warm-up run.
+     */
+    private static long measure(PasswordEncoder passwordEncoder) {
+        passwordEncoder.encode("calibration");
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            passwordEncoder.encode("calibration");
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        return Math.max(1, fastest);
+    }
+
+    private static PasswordEncoder pbkdf2(int iterations) {
+        return new Pbkdf2PasswordEncoder("", 16, iterations, Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+    }
+
+    private static PasswordEncoder argon2(int iterations) {
+        return new Argon2PasswordEncoder(16, 32, 1, 1 << 14, iterations);
+    }
+}
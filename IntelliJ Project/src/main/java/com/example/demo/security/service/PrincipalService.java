@@ -0,0 +1,195 @@
+package com.example.demo.security.service;
+
+import com.example.demo.invalidation.model.InvalidationEvent;
+import com.example.demo.invalidation.service.InvalidationBus;
+import com.example.demo.invalidation.service.InvalidationListener;
+import com.example.demo.security.model.VerifiedToken;
+import com.example.demo.user.model.User;
+import com.example.demo.user.repository.UserRepository;
+import com.example.demo.user.roles.Role;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Service that resolves the principal of an authenticated request from a verified token.
+ * Depending on the configured mode, principals are either served from a bounded local cache in front of the
+ * UserRepository, or built directly from the token's subject and roles claims without any database access.
+ * Claims are only trusted for tokens issued within the max-staleness window; older tokens are resolved like in the cache
+ * mode, so a role change applies to every token within that window at the latest.
+ * Evictions are broadcast to the other instances over the invalidation bus.
+ * The statistics of the cache are published as the "cache.*" metrics with the tag cache=principals.
+ */
+@Service
+public class PrincipalService {
+
+    /**
+     * Ways of resolving a principal from a verified token.
+     */
+    public enum PrincipalMode {
+        // Load the user from the database once and serve it from the local cache afterwards
+        CACHE,
+        // Build the user from the token's claims only, while the token is within the max-staleness window
+        CLAIMS
+    }
+
+    // Repository to fetch user details based on email
+    private final UserRepository userRepository;
+
+    // Configured way of resolving principals
+    private final PrincipalMode mode;
+
+    // Users keyed by email
+    private final Cache<String, UserDetails> principals;
+
+    // Age up to which the claims of a token are trusted in the claims mode
+    private final long maxStalenessMillis;
+
+    // Bus evictions are broadcast on
+    private final InvalidationBus invalidationBus;
+
+    /**
+     * Creates the service with the configured mode and cache bounds.
+     * @param userRepository Repository to fetch user details based on email.
+     * @param mode Way of resolving principals.
+     * @param maximumSize Maximum number of cached principals.
+     * @param timeToLive How long a cached principal is served before it is reloaded.
+     * @param maxStaleness Age up to which the claims of a token are trusted in the claims mode.
+     * @param invalidationBus Bus evictions are broadcast on.
+     * @param meterRegistry Registry the cache statistics are published to.
+     */
+    public PrincipalService(UserRepository userRepository,
+                            @Value("${security.principal.mode:cache}") PrincipalMode mode,
+                            @Value("${security.principal.cache.maximum-size:10000}") long maximumSize,
+                            @Value("${security.principal.cache.time-to-live:PT5M}") Duration timeToLive,
+                            @Value("${security.principal.claims.max-staleness:PT5M}") Duration maxStaleness,
+                            InvalidationBus invalidationBus,
+                            MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.mode = mode;
+        this.maxStalenessMillis = maxStaleness.toMillis();
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principals, "principals");
+        this.invalidationBus = invalidationBus;
+        invalidationBus.subscribe(InvalidationEvent.Type.USER, new InvalidationListener() {
+            @Override
+            public void invalidate(InvalidationEvent event) {
+                principals.invalidate(event.getKey());
+            }
+
+            @Override
+            public void invalidateAll() {
+                principals.invalidateAll();
+            }
+        });
+    }
+
+    /**
+     * Resolves the principal the verified token was issued to.
+     * @param token Verified token.
+     * @return UserDetails of the token's subject.
+     * @throws UsernameNotFoundException if the subject no longer exists.
+     * @throws BadCredentialsException if the claims are trusted but carry no known role.
+     */
+    public UserDetails loadPrincipal(VerifiedToken token) {
+        if (mode == PrincipalMode.CLAIMS && isWithinMaxStaleness(token)) {
+            return fromClaims(token);
+        }
+        return loadUserByUsername(token.getSubject());
+    }
+
+    /**
+     * Resolves the principal the verified token was issued to without loading the user, from the token's claims or from
+     * the cache; used by callers that load users without blocking and then cache them with {@link #cachePrincipal}.
+     * @param token Verified token.
+     * @return UserDetails of the token's subject, or null if the user has to be loaded.
+     * @throws BadCredentialsException if the claims are trusted but carry no known role.
+     */
+    public UserDetails resolveWithoutLoading(VerifiedToken token) {
+        if (mode == PrincipalMode.CLAIMS && isWithinMaxStaleness(token)) {
+            return fromClaims(token);
+        }
+        return principals.getIfPresent(token.getSubject());
+    }
+
+    /**
+     * Caches a principal that was loaded outside this service.
+     * @param user Loaded user.
+     */
+    public void cachePrincipal(UserDetails user) {
+        principals.put(user.getUsername(), user);
+    }
+
+    /**
+     * Loads a user by email, serving it from the cache when possible.
+     * Missing users are not cached, so a later registration is picked up immediately.
+     * @param email Email of the user.
+     * @return UserDetails of the user.
+     * @throws UsernameNotFoundException if no user has the given email.
+     */
+    public UserDetails loadUserByUsername(String email) {
+        UserDetails user = principals.get(email, key -> userRepository.findByEmail(key).orElse(null));
+        if (user == null) {
+            throw new UsernameNotFoundException("User not found.");
+        }
+        return user;
+    }
+
+    /**
+     * Removes the cached principal of a user on this and every other instance; must be called whenever the user is
+     * created or updated.
+     * @param email Email of the user.
+     */
+    public void evict(String email) {
+        principals.invalidate(email);
+        invalidationBus.publish(InvalidationEvent.user(email));
+    }
+
+    /**
+     * Returns the hit and miss counters of the principal cache.
+     * @return Statistics of the principal cache.
+     */
+    public CacheStats getStatistics() {
+        return principals.stats();
+    }
+
+    private boolean isWithinMaxStaleness(VerifiedToken token) {
+        Instant issuedAt = token.getIssuedAt();
+        return issuedAt != null && System.currentTimeMillis() - issuedAt.toEpochMilli() <= maxStalenessMillis;
+    }
+
+    /**
+     * Builds the principal from the subject and roles claims; its authorities are the shared ones of the role.
+     */
+    private static UserDetails fromClaims(VerifiedToken token) {
+        Role role = null;
+        for (String name : token.getRoles()) {
+            role = Role.fromAuthority(name);
+            if (role != null) {
+                break;
+            }
+        }
+        if (role == null) {
+            throw new BadCredentialsException("Token does not carry a known role.");
+        }
+
+        return User.builder()
+                .email(token.getSubject())
+                .role(role)
+                .build();
+    }
+}
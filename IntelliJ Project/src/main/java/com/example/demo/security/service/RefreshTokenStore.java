@@ -0,0 +1,39 @@
+package com.example.demo.security.service;
+
+import java.util.Optional;
+
+/**
+ * Store for opaque, single-use refresh tokens.
+ * Only the SHA-256 hash of a token is kept, so the store never holds usable credentials.
+ * A token is removed when it is used, which makes every refresh rotate the token.
+ */
+public interface RefreshTokenStore {
+
+    /**
+     * Issues a new refresh token for the user.
+     * @param email Email of the user the token is issued to.
+     * @return The raw refresh token, to be handed to the client.
+     */
+    String issue(String email);
+
+    /**
+     * Uses up a refresh token.
+     * @param refreshToken The raw refresh token presented by the client.
+     * @return Email of the user the token was issued to, or an empty Optional if the token is unknown, expired or already used.
+     */
+    Optional<String> consume(String refreshToken);
+
+    /**
+     * Uses up a refresh token if it was issued to the given user, and leaves it untouched otherwise.
+     * @param refreshToken The raw refresh token presented by the client.
+     * @param email Email of the user the token must have been issued to.
+     * @return true if the token was issued to the user and has been used up.
+     */
+    boolean consume(String refreshToken, String email);
+
+    /**
+     * Removes every expired token.
+     * @return Number of removed tokens.
+     */
+    int removeExpired();
+}
@@ -0,0 +1,42 @@
+package com.example.demo.security.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Helpers shared by the refresh token stores for generating and hashing tokens.
+ */
+final class RefreshTokens {
+
+    // Source of the random token bytes
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private RefreshTokens() {
+    }
+
+    /**
+     * Generates a new random refresh token.
+     * @return 256 random bits, Base64 (URL-safe) encoded.
+     */
+    static String generate() {
+        byte[] token = new byte[32];
+        RANDOM.nextBytes(token);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    /**
+     * Hashes a raw refresh token.
+     * @param refreshToken The raw refresh token.
+     * @return SHA-256 hash of the token.
+     */
+    static byte[] hash(String refreshToken) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(refreshToken.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.demo.security.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password encoder that times the encoder it wraps.
+ * Encodes and matches are recorded per algorithm, taken from the "{id}" prefix of the hash, and matches also by result.
+ * Timers are registered up front, so recording needs no registry lookup.
+ */
+public class TimedPasswordEncoder implements PasswordEncoder {
+
+    // Ids of the algorithms hashes may be prefixed with; hashes without a prefix are bcrypt
+    private static final List<String> ALGORITHMS = List.of("bcrypt", "pbkdf2", "argon2");
+
+    // Tag value for hashes of an unknown algorithm
+    private static final String OTHER = "other";
+
+    // Encoder doing the actual work
+    private final PasswordEncoder delegate;
+
+    // Encode timers by algorithm
+    private final Map<String, Timer> encodeTimers = new HashMap<>();
+
+    // Match timers by algorithm, for matching and mismatching passwords
+    private final Map<String, Timer> matchedTimers = new HashMap<>();
+    private final Map<String, Timer> mismatchedTimers = new HashMap<>();
+
+    /**
+     * Wraps the encoder and registers its timers.
+     * @param delegate Encoder doing the actual work.
+     * @param meterRegistry Registry the timers are published to.
+     */
+    public TimedPasswordEncoder(PasswordEncoder delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        for (String algorithm : ALGORITHMS) {
+            register(algorithm, meterRegistry);
+        }
+        register(OTHER, meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        long start = System.nanoTime();
+        String encodedPassword = delegate.encode(rawPassword);
+        encodeTimers.get(algorithmOf(encodedPassword)).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return encodedPassword;
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        long start = System.nanoTime();
+        boolean matches = delegate.matches(rawPassword, encodedPassword);
+        (matches ? matchedTimers : mismatchedTimers).get(algorithmOf(encodedPassword))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return matches;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private void register(String algorithm, MeterRegistry meterRegistry) {
+        encodeTimers.put(algorithm, Timer.builder("auth.password.encode")
+                .description("Time spent hashing passwords")
+                .tag("algorithm", algorithm)
+                .register(meterRegistry));
+        matchedTimers.put(algorithm, matchTimer(algorithm, "match", meterRegistry));
+        mismatchedTimers.put(algorithm, matchTimer(algorithm, "mismatch", meterRegistry));
+    }
+
+    private static Timer matchTimer(String algorithm, String result, MeterRegistry meterRegistry) {
+        return Timer.builder("auth.password.match")
+                .description("Time spent checking passwords against their hashes")
+                .tag("algorithm", algorithm)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reads the algorithm id from the "{id}" prefix of a hash without allocating.
+     */
+    private static String algorithmOf(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty() || encodedPassword.charAt(0) != '{') {
+            return "bcrypt";
+        }
+        for (String algorithm : ALGORITHMS) {
+            if (encodedPassword.startsWith(algorithm, 1)
+                    && encodedPassword.length() > algorithm.length() + 1
+                    && encodedPassword.charAt(algorithm.length() + 1) == '}') {
+                return algorithm;
+            }
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,321 @@
+package com.example.demo.security.service;
+
+import com.example.demo.invalidation.model.InvalidationEvent;
+import com.example.demo.invalidation.service.InvalidationBus;
+import com.example.demo.invalidation.service.InvalidationListener;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Service that tracks revoked tokens by their id (jti claim).
+ * Lookups first check a lock-free Bloom filter, so the common case of a token that was never revoked costs a few
+ * array reads and no allocation; only possible matches consult the exact set. Revocations are kept until the token
+ * would have expired anyway and are appended to a local file, which is replayed on startup. Revocations are broadcast to
+ * the other instances over the invalidation bus, and theirs are added here and to the file as well.
+ */
+@Slf4j
+@Service
+public class TokenRevocationService {
+
+    // Expiry used for revoked tokens that never expire
+    private static final long NEVER = Long.MAX_VALUE;
+
+    // Parameters of the 64-bit FNV-1a hash the Bloom filter is indexed with
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // Number of bits set per token id in the Bloom filter
+    private final int hashFunctions;
+
+    // Size of the Bloom filter in bits, a power of two
+    private final int bits;
+
+    // Bloom filter over the revoked token ids; replaced by a rebuilt copy when expired entries are pruned
+    private volatile AtomicLongArray bloomFilter;
+
+    // Revoked token ids and the epoch milliseconds at which the tokens expire
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    // Append-only file the revocations are persisted to, or null to keep them in memory only
+    private final Path file;
+
+    // Channel appending to the file
+    private FileChannel channel;
+
+    // Bus revocations are broadcast on
+    private final InvalidationBus invalidationBus;
+
+    /**
+     * Creates the service with the configured filter size and persistence file.
+     * @param bits Minimum size of the Bloom filter in bits; rounded up to a power of two.
+     * @param hashFunctions Number of bits set per token id.
+     * @param file Path of the append-only revocation file; empty to keep revocations in memory only.
+     * @param invalidationBus Bus revocations are broadcast on.
+     */
+    public TokenRevocationService(@Value("${security.revocation.bloom-filter.bits:1048576}") int bits,
+                                  @Value("${security.revocation.bloom-filter.hash-functions:4}") int hashFunctions,
+                                  @Value("${security.revocation.file:}") String file,
+                                  InvalidationBus invalidationBus) {
+        this.bits = Integer.highestOneBit(Math.max(64, bits - 1)) << 1;
+        this.hashFunctions = hashFunctions;
+        this.bloomFilter = new AtomicLongArray(this.bits / 64);
+        this.file = file.isBlank() ? null : Path.of(file);
+        this.invalidationBus = invalidationBus;
+        invalidationBus.subscribe(InvalidationEvent.Type.REVOCATION, new InvalidationListener() {
+            @Override
+            public void invalidate(InvalidationEvent event) {
+                record(event.getKey(), event.getExpiresAt());
+            }
+
+            @Override
+            public void invalidateAll() {
+                // Revocations are never dropped as a whole
+            }
+        });
+    }
+
+    /**
+     * Replays the revocation file and opens it for appending.
+     * A crash while appending can leave a torn or corrupt line behind: corrupt lines are skipped, and a last line
+     * without its line break is cut off before the file is reopened, so the next revocation does not join onto it.
+     * @throws IOException if the file cannot be read or opened.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        if (file == null) {
+            return;
+        }
+        if (Files.exists(file)) {
+            byte[] content = Files.readAllBytes(file);
+            int end = content.length;
+            while (end > 0 && content[end - 1] != '\n') {
+                end--;
+            }
+            if (end < content.length) {
+                log.warn("Truncating the incomplete last line of token revocation file {}", file);
+                try (FileChannel truncated = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    truncated.truncate(end);
+                    truncated.force(false);
+                }
+            }
+
+            long now = System.currentTimeMillis();
+            int lineNumber = 0;
+            for (String line : new String(content, 0, end, StandardCharsets.US_ASCII).split("\n")) {
+                lineNumber++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+                int separator = line.indexOf(' ');
+                long expiresAt;
+                try {
+                    expiresAt = separator > 0 ? Long.parseLong(line.substring(separator + 1)) : -1;
+                } catch (NumberFormatException e) {
+                    expiresAt = -1;
+                }
+                if (expiresAt < 0) {
+                    log.warn("Skipping corrupt line {} of token revocation file {}", lineNumber, file);
+                } else if (expiresAt > now) {
+                    add(line.substring(0, separator), expiresAt);
+                }
+            }
+            log.info("Loaded {} token revocations from {}", revoked.size(), file);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Closes the revocation file.
+     * @throws IOException if the file cannot be closed.
+     */
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Checks if the token with the given id has been revoked.
+     * @param tokenId Id (jti claim) of the token; tokens without an id cannot be revoked.
+     * @return true if the token has been revoked, false otherwise.
+     */
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !mightContain(bloomFilter, hash(tokenId))) {
+            return false;
+        }
+        return revoked.containsKey(tokenId);
+    }
+
+    /**
+     * Checks if the token whose id is the given UUID has been revoked.
+     * The Bloom filter is checked on the two halves directly; the id is only turned into a string for possible matches.
+     * @param mostSignificantBits Most significant 64 bits of the token id.
+     * @param leastSignificantBits Least significant 64 bits of the token id.
+     * @return true if the token has been revoked, false otherwise.
+     */
+    public boolean isRevoked(long mostSignificantBits, long leastSignificantBits) {
+        if (!mightContain(bloomFilter, hash(mostSignificantBits, leastSignificantBits))) {
+            return false;
+        }
+        return revoked.containsKey(new UUID(mostSignificantBits, leastSignificantBits).toString());
+    }
+
+    /**
+     * Revokes the token with the given id until it expires, on this and every other instance.
+     * @param tokenId Id (jti claim) of the token.
+     * @param expiration Expiration of the token, or null if it never expires.
+     */
+    public void revoke(String tokenId, Instant expiration) {
+        long expiresAt = expiration == null ? NEVER : expiration.toEpochMilli();
+        if (record(tokenId, expiresAt)) {
+            invalidationBus.publish(InvalidationEvent.revocation(tokenId, expiresAt));
+        }
+    }
+
+    /**
+     * Adds a revocation and appends it to the revocation file.
+     * @param tokenId Id (jti claim) of the token.
+     * @param expiresAt Epoch milliseconds at which the token expires.
+     * @return true if the token was not revoked before, false otherwise.
+     */
+    private synchronized boolean record(String tokenId, long expiresAt) {
+        if (revoked.containsKey(tokenId)) {
+            return false;
+        }
+        add(tokenId, expiresAt);
+        if (channel != null) {
+            try {
+                channel.write(ByteBuffer.wrap((tokenId + ' ' + expiresAt + '\n').getBytes(StandardCharsets.US_ASCII)));
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not persist token revocation.", e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drops revocations of tokens that have expired, rebuilding the Bloom filter and compacting the revocation file.
+     * @return Number of dropped revocations.
+     */
+    @Scheduled(fixedDelayString = "${security.revocation.prune-interval:PT10M}")
+    public synchronized int pruneExpired() {
+        long now = System.currentTimeMillis();
+        int before = revoked.size();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        int pruned = before - revoked.size();
+        if (pruned == 0) {
+            return 0;
+        }
+
+        AtomicLongArray rebuilt = new AtomicLongArray(bits / 64);
+        revoked.keySet().forEach(tokenId -> put(rebuilt, tokenId));
+        bloomFilter = rebuilt;
+
+        if (channel != null) {
+            try {
+                compact();
+            } catch (IOException e) {
+                log.warn("Could not compact token revocation file {}", file, e);
+            }
+        }
+        return pruned;
+    }
+
+    private void add(String tokenId, long expiresAt) {
+        revoked.put(tokenId, expiresAt);
+        put(bloomFilter, tokenId);
+    }
+
+    /**
+     * Rewrites the revocation file with the remaining revocations and reopens it for appending.
+     */
+    private void compact() throws IOException {
+        Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(compacted, StandardCharsets.US_ASCII)) {
+            for (Map.Entry<String, Long> entry : List.copyOf(revoked.entrySet())) {
+                writer.write(entry.getKey() + ' ' + entry.getValue() + '\n');
+            }
+        }
+        channel.close();
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void put(AtomicLongArray filter, String tokenId) {
+        long hash = hash(tokenId);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            int bit = (first + i * second) & (bits - 1);
+            int word = bit >>> 6;
+            long mask = 1L << bit;
+            long current;
+            while (((current = filter.get(word)) & mask) == 0 && !filter.compareAndSet(word, current, current | mask)) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private boolean mightContain(AtomicLongArray filter, long hash) {
+        int first = (int) hash;
+        int second = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            int bit = (first + i * second) & (bits - 1);
+            if ((filter.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64-bit FNV-1a hash over the characters of the id, computed without allocating.
+     */
+    private static long hash(String tokenId) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < tokenId.length(); i++) {
+            hash = (hash ^ tokenId.charAt(i)) * FNV_PRIME;
+        }
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * The same hash over the string form of a UUID (lower-case hex digits grouped 8-4-4-4-12), computed from the two
+     * halves without building the string.
+     */
+    private static long hash(long mostSignificantBits, long leastSignificantBits) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < 32; i++) {
+            if (i == 8 || i == 12 || i == 16 || i == 20) {
+                hash = (hash ^ '-') * FNV_PRIME;
+            }
+            long half = i < 16 ? mostSignificantBits : leastSignificantBits;
+            int digit = (int) (half >>> (60 - 4 * (i & 15))) & 0xf;
+            hash = (hash ^ Character.forDigit(digit, 16)) * FNV_PRIME;
+        }
+        return hash ^ (hash >>> 31);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.demo.security.service;
+
+import com.example.demo.security.model.VerifiedToken;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of tokens that have already passed signature verification.
+ * Entries are keyed by the SHA-256 digest of the raw token, so the cache never holds usable credentials,
+ * and each entry is evicted as soon as its token expires.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    // MessageDigest instances are not thread-safe, so each thread keeps its own
+    private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(VerifiedTokenCache::newDigest);
+
+    // Verified tokens keyed by the Base64 encoded digest of the raw token
+    private final Cache<String, VerifiedToken> cache;
+
+    /**
+     * Creates the cache with the configured bounds.
+     * @param maximumSize Maximum number of verified tokens kept in memory.
+     * @param maxTimeToLive Upper bound on how long a token stays cached, used for tokens without an expiration.
+     */
+    public VerifiedTokenCache(@Value("${jwt.verification-cache.maximum-size:10000}") long maximumSize,
+                              @Value("${jwt.verification-cache.max-time-to-live:PT10M}") Duration maxTimeToLive) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry(maxTimeToLive.toNanos()))
+                .build();
+    }
+
+    /**
+     * Returns the cached verification result for the token, verifying and caching it on a miss.
+     * Failed verifications are not cached; the exception thrown by the verifier is propagated.
+     * @param jwt Raw JWT token.
+     * @param verifier Function that parses and verifies the token.
+     * @return Verified token.
+     */
+    public VerifiedToken get(String jwt, Function<String, VerifiedToken> verifier) {
+        return cache.get(digest(jwt), key -> verifier.apply(jwt));
+    }
+
+    /**
+     * Removes every cached verification result.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static String digest(String jwt) {
+        byte[] hash = DIGESTS.get().digest(jwt.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    /**
+     * Expires each entry at the expiration time of its token, capped by the configured maximum time to live.
+     */
+    private record TokenExpiry(long maxTimeToLiveNanos) implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+            if (token.getExpiration() == null) {
+                return maxTimeToLiveNanos;
+            }
+            long remaining = Duration.between(Instant.now(), token.getExpiration()).toNanos();
+            return Math.max(0, Math.min(remaining, maxTimeToLiveNanos));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
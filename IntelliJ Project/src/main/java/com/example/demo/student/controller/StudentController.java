@@ -1,32 +1,85 @@
 package com.example.demo.student.controller;
 
 import com.example.demo.student.model.Student;
+import com.example.demo.student.model.StudentBatchResult;
+import com.example.demo.student.model.StudentCacheStatistics;
+import com.example.demo.student.service.StudentBatchService;
 import com.example.demo.student.service.StudentService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 /**
  * Controller responsible for handling student-related requests.
- * Provides endpoints to retrieve all students and a specific student by ID.
+ * Provides endpoints to list students page by page or as a stream, and to retrieve a specific student by ID.
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/v1/students")
 @RequiredArgsConstructor
 public class StudentController {
 
+    // Media type of the streaming listing: one JSON document per line
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     // Service to handle student operations
     private final StudentService studentService;
 
+    // Service to handle bulk student imports
+    private final StudentBatchService studentBatchService;
+
+    // Mapper used to write streamed students
+    private final ObjectMapper objectMapper;
+
     /**
-     * Retrieves a list of all students.
-     * @return List of students.
+     * Retrieves one page of students ordered by id.
+     * The next page is requested with after set to the id of the last student returned.
+     * @param after Id of the last student of the previous page; omitted for the first page.
+     * @param limit Maximum number of students to return.
+     * @return Page of students.
      */
     @GetMapping(path = "")
-    public List<Student> getAllStudents() {
-        return studentService.getAllStudents();
+    public List<Student> getStudents(@RequestParam(required = false) Long after,
+                                     @RequestParam(defaultValue = "100") int limit) {
+        return studentService.getStudents(after, limit);
+    }
+
+    /**
+     * Streams all students as newline-delimited JSON, writing each row as it is read from the database.
+     * Selected with the header "Accept: application/x-ndjson".
+     * @return Response body writing the students.
+     */
+    @GetMapping(path = "", produces = APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamStudents() {
+        ObjectWriter writer = objectMapper.writerFor(Student.class);
+        return outputStream -> studentService.streamStudents(student -> {
+            try {
+                outputStream.write(writer.writeValueAsBytes(student));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Retrieves the hit, miss and eviction counters of the student cache.
+     * @return Statistics of the student cache.
+     */
+    @GetMapping(path = "/cache")
+    public StudentCacheStatistics getCacheStatistics() {
+        return studentService.getCacheStatistics();
     }
 
     /**
@@ -43,4 +96,19 @@ public class StudentController {
     public void addStudent(@RequestBody Student student) {
         studentService.addStudent(student);
     }
+
+    /**
+     * Imports many students in one request, inserting them in JDBC batches.
+     * The body is either a JSON array or newline-delimited JSON; it is read incrementally, one student at a time.
+     * An item that is not valid JSON stops the import with 400 (see StudentExceptionHandler).
+     * @param body Request body containing the students.
+     * @return One result per submitted student, in request order.
+     * @throws IOException if the body cannot be read.
+     */
+    @PostMapping(path = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public List<StudentBatchResult> addStudents(InputStream body) throws IOException {
+        try (MappingIterator<Student> students = objectMapper.readerFor(Student.class).readValues(body)) {
+            return studentBatchService.addStudents(students);
+        }
+    }
 }
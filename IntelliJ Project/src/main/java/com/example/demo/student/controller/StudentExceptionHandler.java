@@ -0,0 +1,28 @@
+package com.example.demo.student.controller;
+
+import com.example.demo.student.exception.MalformedStudentBatchException;
+import com.example.demo.student.model.StudentBatchFailure;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Translates student errors into HTTP responses.
+ */
+@RestControllerAdvice
+public class StudentExceptionHandler {
+
+    /**
+     * Responds with 400 when a batch import stops at an item that cannot be read, telling the client how many
+     * students were inserted before it so it can resume after them.
+     * @param exception The error raised by the batch service.
+     * @return Response with the failing item and the results of the items before it.
+     */
+    @ExceptionHandler(MalformedStudentBatchException.class)
+    public ResponseEntity<StudentBatchFailure> handleMalformedStudentBatch(MalformedStudentBatchException exception) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new StudentBatchFailure(exception.getMessage(), exception.getIndex(),
+                        exception.getCommitted(), exception.getResults()));
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo.student.exception;
+
+import com.example.demo.student.model.StudentBatchResult;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Thrown when an item of a batch student import cannot be read, e.g. because the body is not valid JSON.
+ * The import stops at that item; the valid items before it have already been written, each batch in its own transaction.
+ */
+@Getter
+public class MalformedStudentBatchException extends RuntimeException {
+
+    // Position of the item that could not be read, starting at 0
+    private final int index;
+
+    // Results of the items read before it, in request order
+    private final List<StudentBatchResult> results;
+
+    public MalformedStudentBatchException(int index, List<StudentBatchResult> results, Throwable cause) {
+        super("Item " + index + " of the import could not be read.", cause);
+        this.index = index;
+        this.results = results;
+    }
+
+    /**
+     * Counts the students of the import that were inserted before it stopped.
+     * @return Number of items that were written.
+     */
+    public int getCommitted() {
+        return (int) results.stream()
+                .filter(result -> result.getStatus() == StudentBatchResult.Status.CREATED && result.getId() != null)
+                .count();
+    }
+}
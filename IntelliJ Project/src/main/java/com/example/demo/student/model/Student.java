@@ -8,8 +8,10 @@ import lombok.*;
 @Entity
 @Table
 public class Student {
+    // Ids are allocated from a pooled sequence, so inserting a batch does not need a sequence round-trip per row
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "student_sequence")
+    @SequenceGenerator(name = "student_sequence", sequenceName = "student_sequence", allocationSize = 50)
     private Long id;
     private String name;
 
@@ -0,0 +1,29 @@
+package com.example.demo.student.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Response to a batch student import that stopped at an item that could not be read.
+ */
+@Data
+@Builder
+@AllArgsConstructor @NoArgsConstructor
+public class StudentBatchFailure {
+
+    // Why the import stopped
+    private String message;
+
+    // Position of the item that could not be read, starting at 0
+    private int index;
+
+    // Number of students inserted before the import stopped; they are not rolled back
+    private int committed;
+
+    // Results of the items read before the import stopped, in request order
+    private List<StudentBatchResult> results;
+}
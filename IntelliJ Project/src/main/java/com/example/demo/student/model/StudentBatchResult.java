@@ -0,0 +1,38 @@
+package com.example.demo.student.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one item of a batch student import.
+ */
+@Data
+@Builder
+@AllArgsConstructor @NoArgsConstructor
+public class StudentBatchResult {
+
+    /**
+     * Possible outcomes of an imported item.
+     */
+    public enum Status {
+        // The student was inserted
+        CREATED,
+        // The item was invalid and was not inserted
+        REJECTED,
+        // The batch containing the item could not be written
+        FAILED
+    }
+
+    // Position of the item in the request, starting at 0
+    private int index;
+
+    // Id of the inserted student, or null if it was not inserted
+    private Long id;
+
+    private Status status;
+
+    // Reason the item was not inserted
+    private String message;
+}
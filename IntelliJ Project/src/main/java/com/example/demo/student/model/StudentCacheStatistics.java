@@ -0,0 +1,26 @@
+package com.example.demo.student.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Snapshot of the student cache counters.
+ */
+@Data
+@Builder
+@AllArgsConstructor @NoArgsConstructor
+public class StudentCacheStatistics {
+
+    // Name of the cache implementation in use
+    private String type;
+
+    // Number of cached entries, including cached misses
+    private long size;
+
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long evictionCount;
+}
@@ -1,10 +1,38 @@
 package com.example.demo.student.repository;
 
 import com.example.demo.student.model.Student;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface StudentRepository extends JpaRepository<Student, Long> {
 
+    /**
+     * Retrieves the page of students that follows the given id (keyset pagination).
+     * @param after Id of the last student of the previous page.
+     * @param pageable Page size; the page number must be 0.
+     * @return Students with an id greater than the given one, ordered by id.
+     */
+    List<Student> findByIdGreaterThanOrderByIdAsc(Long after, Pageable pageable);
+
+    /**
+     * Streams all students ordered by id, fetching rows from the database in batches.
+     * Must be consumed inside a transaction and closed afterwards.
+     * @return Stream of students.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("select s from Student s order by s.id")
+    Stream<Student> streamAllByOrderByIdAsc();
 }
@@ -0,0 +1,115 @@
+package com.example.demo.student.service;
+
+import com.example.demo.invalidation.model.InvalidationEvent;
+import com.example.demo.invalidation.service.InvalidationBus;
+import com.example.demo.invalidation.service.InvalidationListener;
+import com.example.demo.student.model.Student;
+import com.example.demo.student.model.StudentCacheStatistics;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Local, size and time bounded student cache backed by Caffeine.
+ * Cached misses use their own, usually shorter, time to live. Evictions are broadcast to the other instances over the
+ * invalidation bus. Selected with student.cache.type=caffeine (the default).
+ */
+@Component
+@ConditionalOnProperty(name = "student.cache.type", havingValue = "caffeine", matchIfMissing = true)
+public class CaffeineStudentCache implements StudentCache {
+
+    // Lookup results keyed by student id; an empty Optional marks a cached miss
+    private final Cache<Long, Optional<Student>> students;
+
+    // Bus evictions are broadcast on
+    private final InvalidationBus invalidationBus;
+
+    /**
+     * Creates the cache with the configured bounds.
+     * @param maximumSize Maximum number of cached lookups.
+     * @param timeToLive How long a found student stays cached.
+     * @param negativeTimeToLive How long a missing student stays cached.
+     * @param invalidationBus Bus evictions are broadcast on.
+     */
+    public CaffeineStudentCache(@Value("${student.cache.maximum-size:10000}") long maximumSize,
+                                @Value("${student.cache.time-to-live:PT10M}") Duration timeToLive,
+                                @Value("${student.cache.negative-time-to-live:PT30S}") Duration negativeTimeToLive,
+                                InvalidationBus invalidationBus) {
+        this.students = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new LookupExpiry(timeToLive.toNanos(), negativeTimeToLive.toNanos()))
+                .recordStats()
+                .build();
+        this.invalidationBus = invalidationBus;
+        invalidationBus.subscribe(InvalidationEvent.Type.STUDENT, new InvalidationListener() {
+            @Override
+            public void invalidate(InvalidationEvent event) {
+                students.invalidate(Long.valueOf(event.getKey()));
+            }
+
+            @Override
+            public void invalidateAll() {
+                students.invalidateAll();
+            }
+        });
+    }
+
+    @Override
+    public Optional<Student> get(Long studentId, Function<Long, Optional<Student>> loader) {
+        return students.get(studentId, loader);
+    }
+
+    @Override
+    public void evict(Long studentId) {
+        students.invalidate(studentId);
+        invalidationBus.publish(InvalidationEvent.student(studentId));
+    }
+
+    @Override
+    public void evictAll() {
+        students.invalidateAll();
+        invalidationBus.publish(InvalidationEvent.all(InvalidationEvent.Type.STUDENT));
+    }
+
+    @Override
+    public StudentCacheStatistics getStatistics() {
+        CacheStats stats = students.stats();
+        return StudentCacheStatistics.builder()
+                .type("caffeine")
+                .size(students.estimatedSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .evictionCount(stats.evictionCount())
+                .build();
+    }
+
+    /**
+     * Expires found students and cached misses after their respective time to live.
+     */
+    private record LookupExpiry(long timeToLiveNanos, long negativeTimeToLiveNanos) implements Expiry<Long, Optional<Student>> {
+
+        @Override
+        public long expireAfterCreate(Long studentId, Optional<Student> student, long currentTime) {
+            return student.isPresent() ? timeToLiveNanos : negativeTimeToLiveNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Long studentId, Optional<Student> student, long currentTime, long currentDuration) {
+            return expireAfterCreate(studentId, student, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Long studentId, Optional<Student> student, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
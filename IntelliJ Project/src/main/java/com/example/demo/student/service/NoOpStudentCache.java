@@ -0,0 +1,38 @@
+package com.example.demo.student.service;
+
+import com.example.demo.student.model.Student;
+import com.example.demo.student.model.StudentCacheStatistics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Student cache that caches nothing; every lookup goes to the database.
+ * Selected with student.cache.type=none.
+ */
+@Component
+@ConditionalOnProperty(name = "student.cache.type", havingValue = "none")
+public class NoOpStudentCache implements StudentCache {
+
+    @Override
+    public Optional<Student> get(Long studentId, Function<Long, Optional<Student>> loader) {
+        return loader.apply(studentId);
+    }
+
+    @Override
+    public void evict(Long studentId) {
+    }
+
+    @Override
+    public void evictAll() {
+    }
+
+    @Override
+    public StudentCacheStatistics getStatistics() {
+        return StudentCacheStatistics.builder()
+                .type("none")
+                .build();
+    }
+}
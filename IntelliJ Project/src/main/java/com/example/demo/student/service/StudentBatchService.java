@@ -0,0 +1,122 @@
+package com.example.demo.student.service;
+
+import com.example.demo.student.exception.MalformedStudentBatchException;
+import com.example.demo.student.model.Student;
+import com.example.demo.student.model.StudentBatchResult;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Service responsible for bulk student imports.
+ * Students are inserted in batches, one transaction per batch, so Hibernate can group the inserts into JDBC batches
+ * (see hibernate.jdbc.batch_size) and the persistence context is cleared between batches.
+ */
+@Service
+public class StudentBatchService {
+
+    // Entity manager used to persist, flush and clear each batch
+    private final EntityManager entityManager;
+
+    // Runs each batch in its own transaction
+    private final TransactionTemplate transactionTemplate;
+
+    // Cache whose entries must be evicted for inserted students
+    private final StudentCache studentCache;
+
+    // Number of students written per transaction
+    private final int batchSize;
+
+    /**
+     * Creates the service with the configured batch size.
+     * @param entityManager Entity manager used to persist the students.
+     * @param transactionManager Transaction manager for the batch transactions.
+     * @param studentCache Cache whose entries must be evicted for inserted students.
+     * @param batchSize Number of students written per transaction.
+     */
+    public StudentBatchService(EntityManager entityManager,
+                               PlatformTransactionManager transactionManager,
+                               StudentCache studentCache,
+                               @Value("${student.batch.size:500}") int batchSize) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.studentCache = studentCache;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Inserts the students read from the iterator, batch by batch.
+     * Items without a name are rejected; if writing a batch fails, every item of that batch is reported as failed.
+     * If an item cannot be read, the valid items before it are still written and the import stops there.
+     * @param students Students to insert, read lazily so the whole import never has to be held in memory.
+     * @return One result per item, in request order.
+     * @throws MalformedStudentBatchException if an item cannot be read; it carries the results of the items before it.
+     */
+    public List<StudentBatchResult> addStudents(Iterator<Student> students) {
+        List<StudentBatchResult> results = new ArrayList<>();
+        List<Student> batch = new ArrayList<>(batchSize);
+        List<StudentBatchResult> batchResults = new ArrayList<>(batchSize);
+
+        for (int index = 0; ; index++) {
+            Student student;
+            try {
+                if (!students.hasNext()) {
+                    break;
+                }
+                student = students.next();
+            } catch (RuntimeException e) {
+                writeBatch(batch, batchResults);
+                throw new MalformedStudentBatchException(index, results, e);
+            }
+            if (student == null || student.getName() == null || student.getName().isBlank()) {
+                results.add(new StudentBatchResult(index, null, StudentBatchResult.Status.REJECTED, "Student name is required."));
+                continue;
+            }
+
+            student.setId(null);
+            batch.add(student);
+            batchResults.add(new StudentBatchResult(index, null, StudentBatchResult.Status.CREATED, null));
+            results.add(batchResults.get(batchResults.size() - 1));
+
+            if (batch.size() == batchSize) {
+                writeBatch(batch, batchResults);
+            }
+        }
+        writeBatch(batch, batchResults);
+
+        return results;
+    }
+
+    /**
+     * Writes one batch in its own transaction and records the generated ids, then empties the batch.
+     */
+    private void writeBatch(List<Student> batch, List<StudentBatchResult> batchResults) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                batch.forEach(entityManager::persist);
+                entityManager.flush();
+                entityManager.clear();
+            });
+            for (int i = 0; i < batch.size(); i++) {
+                batchResults.get(i).setId(batch.get(i).getId());
+                studentCache.evict(batch.get(i).getId());
+            }
+        } catch (RuntimeException e) {
+            batchResults.forEach(result -> {
+                result.setStatus(StudentBatchResult.Status.FAILED);
+                result.setMessage(e.getMessage());
+            });
+        }
+        batch.clear();
+        batchResults.clear();
+    }
+}
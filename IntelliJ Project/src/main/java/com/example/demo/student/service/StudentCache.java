@@ -0,0 +1,40 @@
+package com.example.demo.student.service;
+
+import com.example.demo.student.model.Student;
+import com.example.demo.student.model.StudentCacheStatistics;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Read-through cache for student lookups by id.
+ * Absent students are cached too, so repeated lookups of a missing id do not reach the database.
+ * Every write to a student must evict its entry.
+ */
+public interface StudentCache {
+
+    /**
+     * Returns the cached lookup result for the id, loading and caching it on a miss.
+     * @param studentId ID of the student.
+     * @param loader Function loading the student from the database.
+     * @return The student, or an empty Optional if it does not exist.
+     */
+    Optional<Student> get(Long studentId, Function<Long, Optional<Student>> loader);
+
+    /**
+     * Removes the cached lookup result for the id, whether it is a student or a cached miss.
+     * @param studentId ID of the student.
+     */
+    void evict(Long studentId);
+
+    /**
+     * Removes every cached lookup result.
+     */
+    void evictAll();
+
+    /**
+     * Returns the cache counters.
+     * @return Statistics of the cache.
+     */
+    StudentCacheStatistics getStatistics();
+}
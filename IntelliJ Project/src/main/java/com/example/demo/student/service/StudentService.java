@@ -1,39 +1,82 @@
 package com.example.demo.student.service;
 
 import com.example.demo.student.model.Student;
+import com.example.demo.student.model.StudentCacheStatistics;
 import com.example.demo.student.repository.StudentRepository;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 /**
  * Service responsible for student-related operations.
- * Handles the logic for retrieving all students and a specific student by ID.
+ * Lists students a page at a time, starting after a given id, streams every student in id order, and looks up a
+ * student by ID.
  */
 @Service
 @RequiredArgsConstructor
 public class StudentService {
 
+    // Largest page of students returned by a single listing request
+    public static final int MAX_PAGE_SIZE = 1000;
+
     // Repository to interact with student data in the database
     private final StudentRepository studentRepository;
 
+    // Read-through cache for lookups by id
+    private final StudentCache studentCache;
+
+    // Entity manager used to detach streamed students, so the persistence context does not grow with the table
+    private final EntityManager entityManager;
+
+    /**
+     * Retrieves one page of students ordered by id, starting after the given id.
+     * @param after Id of the last student of the previous page, or null for the first page.
+     * @param limit Maximum number of students to return, capped at {@link #MAX_PAGE_SIZE}.
+     * @return Page of students.
+     */
+    public List<Student> getStudents(Long after, int limit) {
+        return studentRepository.findByIdGreaterThanOrderByIdAsc(after == null ? Long.MIN_VALUE : after,
+                PageRequest.of(0, pageSize(limit)));
+    }
+
+    /**
+     * Caps a requested page size to the range served by the listing, from 1 to {@link #MAX_PAGE_SIZE}.
+     * @param limit Requested maximum number of students.
+     * @return Number of students to return at most.
+     */
+    public static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
     /**
-     * Retrieves a list of all students.
-     * @return List of students.
+     * Passes every student to the consumer in id order, reading rows from the database in fetch-size batches.
+     * Each student is detached once consumed, so memory use does not depend on the number of rows.
+     * @param consumer Consumer receiving the students one at a time.
      */
-    public List<Student> getAllStudents() {
-        return studentRepository.findAll();
+    @Transactional(readOnly = true)
+    public void streamStudents(Consumer<Student> consumer) {
+        try (Stream<Student> students = studentRepository.streamAllByOrderByIdAsc()) {
+            students.forEach(student -> {
+                consumer.accept(student);
+                entityManager.detach(student);
+            });
+        }
     }
 
     /**
-     * Retrieves a specific student by ID.
+     * Retrieves a specific student by ID, served from the student cache when possible.
      * @param studentId ID of the student to retrieve.
      * @return Student details.
      */
     public Student getStudent(Long studentId) {
-        Optional<Student> studentOptional = studentRepository.findById(studentId);
+        Optional<Student> studentOptional = studentCache.get(studentId, studentRepository::findById);
         if (studentOptional.isEmpty()) {
             throw new IllegalStateException("Student does not exist.");
         }
@@ -41,7 +84,20 @@ public class StudentService {
         return studentOptional.get();
     }
 
+    /**
+     * Adds a student and evicts any cached lookup for its id.
+     * @param student Student to add.
+     */
     public void addStudent(Student student) {
-        studentRepository.save(student);
+        Student saved = studentRepository.save(student);
+        studentCache.evict(saved.getId());
+    }
+
+    /**
+     * Returns the counters of the student cache.
+     * @return Statistics of the student cache.
+     */
+    public StudentCacheStatistics getCacheStatistics() {
+        return studentCache.getStatistics();
     }
 }
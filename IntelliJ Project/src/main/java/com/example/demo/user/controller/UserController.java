@@ -0,0 +1,52 @@
+package com.example.demo.user.controller;
+
+import com.example.demo.auth.RegisterRequest;
+import com.example.demo.user.model.UserProvisioningResult;
+import com.example.demo.user.service.UserProvisioningService;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Controller responsible for administering users.
+ * Provides an endpoint to provision many users in one request.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/api/v1/users")
+@RequiredArgsConstructor
+public class UserController {
+
+    // Media type of newline-delimited JSON: one JSON document per line
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    // Service to handle bulk user provisioning
+    private final UserProvisioningService userProvisioningService;
+
+    // Mapper used to read the submitted users
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Provisions many users in one request, hashing their passwords in parallel and inserting them in JDBC batches.
+     * The body is either a JSON array or newline-delimited JSON of registration requests; it is read incrementally,
+     * one user at a time.
+     * @param body Request body containing the users.
+     * @return One result per submitted user, in request order.
+     * @throws IOException if the body cannot be read or is not valid JSON.
+     */
+    @PostMapping(path = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public List<UserProvisioningResult> provisionUsers(InputStream body) throws IOException {
+        try (MappingIterator<RegisterRequest> users = objectMapper.readerFor(RegisterRequest.class).readValues(body)) {
+            return userProvisioningService.provisionUsers(users);
+        }
+    }
+}
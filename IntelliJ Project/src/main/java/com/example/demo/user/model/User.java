@@ -7,17 +7,17 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
-import java.util.List;
+import java.util.Locale;
 /**
  * Entity representing a user in the system.
  * Contains user details and implements UserDetails for Spring Security.
+ * Emails are stored lower-cased, so the unique index on the column also rejects emails that differ only in case.
  */
 @Entity
-@Table(name = "_user")
+@Table(name = "_user", indexes = @Index(name = "ux_user_email", columnList = "email", unique = true))
 @Data
 @Builder
 @NoArgsConstructor
@@ -32,7 +32,8 @@ public class User implements UserDetails {
     // Name of the user
     private String name;
 
-    // Email of the user, used as the username for authentication
+    // Email of the user, used as the username for authentication; always lower-cased
+    @Column(nullable = false)
     private String email;
 
     // Hashed password of the user
@@ -56,13 +57,32 @@ public class User implements UserDetails {
         this.role = role;
     }
 
+    /**
+     * Normalizes an email the way it is stored, so lookups and the unique index ignore case.
+     * @param email Email as entered by the user.
+     * @return Trimmed, lower-cased email, or null if the email is null.
+     */
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Normalizes the email before the user is written.
+     */
+    @PrePersist
+    @PreUpdate
+    void normalize() {
+        email = normalizeEmail(email);
+    }
+
     /**
      * Returns the authorities (roles) granted to the user.
+     * The list is shared by every user with the same role, so calling this does not allocate.
      * @return A collection of granted authorities.
      */
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return List.of(new SimpleGrantedAuthority(role.name()));
+        return role.getAuthorities();
     }
 
     /**
@@ -0,0 +1,43 @@
+package com.example.demo.user.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one item of a bulk user provisioning request.
+ */
+@Data
+@Builder
+@AllArgsConstructor @NoArgsConstructor
+public class UserProvisioningResult {
+
+    /**
+     * Possible outcomes of a provisioned item.
+     */
+    public enum Status {
+        // The user was inserted
+        CREATED,
+        // The email is already in use, or appears earlier in the request
+        DUPLICATE,
+        // The item was invalid and was not inserted
+        REJECTED,
+        // The user could not be written
+        FAILED
+    }
+
+    // Position of the item in the request, starting at 0
+    private int index;
+
+    // Id of the inserted user, or null if it was not inserted
+    private Long id;
+
+    // Normalized email of the item
+    private String email;
+
+    private Status status;
+
+    // Reason the item was not inserted
+    private String message;
+}
@@ -2,9 +2,53 @@ package com.example.demo.user.repository;
 
 import com.example.demo.user.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 
 public interface UserRepository extends JpaRepository<User, Long> {
-    Optional<User> findByEmail(String email);
+
+    /**
+     * Finds a user by email, ignoring case. The lookup is a single probe of the unique email index.
+     * @param email Email as entered by the user.
+     * @return The user, or empty if no user has the email.
+     */
+    default Optional<User> findByEmail(String email) {
+        return findByNormalizedEmail(User.normalizeEmail(email));
+    }
+
+    /**
+     * Finds a user by an email that is already normalized.
+     * @param email Trimmed, lower-cased email.
+     * @return The user, or empty if no user has the email.
+     */
+    @Query("select u from User u where u.email = :email")
+    Optional<User> findByNormalizedEmail(@Param("email") String email);
+
+    /**
+     * Finds which of the given emails are already in use, in one query.
+     * @param emails Trimmed, lower-cased emails.
+     * @return The emails among them that belong to a user.
+     */
+    @Query("select u.email from User u where u.email in :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Replaces a user's password hash, but only if it still matches the hash the caller read.
+     * @param id Identifier of the user.
+     * @param currentPassword Hash the caller expects to be stored.
+     * @param newPassword Hash to store.
+     * @return Number of updated rows; 0 if the hash changed in the meantime.
+     */
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :newPassword where u.id = :id and u.password = :currentPassword")
+    int updatePassword(@Param("id") Long id,
+                       @Param("currentPassword") String currentPassword,
+                       @Param("newPassword") String newPassword);
 }
@@ -1,6 +1,54 @@
 package com.example.demo.user.roles;
 
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+/**
+ * Roles a user can have.
+ * Each role holds its granted authority, created once, so checking or granting a role never allocates one.
+ */
 public enum Role {
     ROLE_ADMIN,
-    ROLE_USER
+    ROLE_USER;
+
+    // Roles in declaration order, so a lookup does not copy the array returned by values()
+    private static final Role[] ROLES = values();
+
+    // Authority of the role, shared by every user with the role
+    private final GrantedAuthority authority = new SimpleGrantedAuthority(name());
+
+    // Authorities of a user with the role
+    private final List<GrantedAuthority> authorities = List.of(authority);
+
+    /**
+     * Returns the authority granted by the role.
+     * @return Shared authority named after the role.
+     */
+    public GrantedAuthority getAuthority() {
+        return authority;
+    }
+
+    /**
+     * Returns the authorities of a user with the role.
+     * @return Shared, immutable list holding the authority of the role.
+     */
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    /**
+     * Finds the role an authority name stands for.
+     * @param authority Name of the authority, e.g. from the roles claim of a token.
+     * @return The role, or null if no role has that name.
+     */
+    public static Role fromAuthority(String authority) {
+        for (Role role : ROLES) {
+            if (role.name().equals(authority)) {
+                return role;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,81 @@
+package com.example.demo.user.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Hashes many passwords at once on a bounded fork-join pool.
+ * Bulk provisioning hashes whole batches of passwords; splitting a batch across one thread per core lets throughput
+ * grow with the number of cores, while the fixed parallelism keeps concurrent imports from taking more cores than that.
+ * The pool is separate from the common pool and from the executor serving single registrations and logins.
+ */
+@Component
+public class ParallelPasswordHasher {
+
+    // Encoder hashing each password
+    private final PasswordEncoder passwordEncoder;
+
+    // Pool the batches are split across
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates the hasher with the configured parallelism.
+     * @param passwordEncoder Encoder hashing each password.
+     * @param threads Number of hashing threads; 0 uses one thread per available processor.
+     */
+    public ParallelPasswordHasher(PasswordEncoder passwordEncoder,
+                                  @Value("${user.provisioning.hashing-threads:0}") int threads) {
+        this.passwordEncoder = passwordEncoder;
+        int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(parallelism, ParallelPasswordHasher::newThread, null, false);
+    }
+
+    /**
+     * Hashes the passwords in parallel.
+     * @param rawPasswords Passwords to hash.
+     * @return Hashes in the order of the passwords.
+     */
+    public List<String> encodeAll(List<String> rawPasswords) {
+        try {
+            return pool.submit(() -> rawPasswords.parallelStream().map(passwordEncoder::encode).toList()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing passwords", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Returns the number of threads passwords are hashed on.
+     * @return Parallelism of the pool.
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Stops the hashing threads once running batches are done.
+     */
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("password-provisioning-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
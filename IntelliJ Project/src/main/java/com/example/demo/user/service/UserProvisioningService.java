@@ -0,0 +1,199 @@
+package com.example.demo.user.service;
+
+import com.example.demo.auth.RegisterRequest;
+import com.example.demo.security.service.PrincipalService;
+import com.example.demo.user.model.User;
+import com.example.demo.user.model.UserProvisioningResult;
+import com.example.demo.user.repository.UserRepository;
+import com.example.demo.user.roles.Role;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Service responsible for provisioning many users at once.
+ * Items are read one at a time and collected into batches. For each batch, the emails already in use are found with
+ * one query, the remaining passwords are hashed in parallel and the users are inserted in one transaction, so Hibernate
+ * can group the inserts into JDBC batches (see hibernate.jdbc.batch_size). Unlike registration, no tokens are issued.
+ */
+@Service
+public class UserProvisioningService {
+
+    // Repository used to find emails in use and to insert users one by one after a failed batch
+    private final UserRepository userRepository;
+
+    // Entity manager used to persist, flush and clear each batch
+    private final EntityManager entityManager;
+
+    // Runs each batch in its own transaction
+    private final TransactionTemplate transactionTemplate;
+
+    // Hashes the passwords of a batch in parallel
+    private final ParallelPasswordHasher passwordHasher;
+
+    // Service holding cached principals, which must be evicted for inserted users
+    private final PrincipalService principalService;
+
+    // Number of users written per transaction
+    private final int batchSize;
+
+    /**
+     * Creates the service with the configured batch size.
+     * @param userRepository Repository used to find emails in use.
+     * @param entityManager Entity manager used to persist the users.
+     * @param transactionManager Transaction manager for the batch transactions.
+     * @param passwordHasher Hasher of the passwords of a batch.
+     * @param principalService Service holding cached principals.
+     * @param batchSize Number of users written per transaction.
+     */
+    public UserProvisioningService(UserRepository userRepository,
+                                   EntityManager entityManager,
+                                   PlatformTransactionManager transactionManager,
+                                   ParallelPasswordHasher passwordHasher,
+                                   PrincipalService principalService,
+                                   @Value("${user.provisioning.batch-size:500}") int batchSize) {
+        this.userRepository = userRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.passwordHasher = passwordHasher;
+        this.principalService = principalService;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Inserts the users read from the iterator, batch by batch, with the user role.
+     * Items without an email or password are rejected, and an email that is already in use or appears earlier in the
+     * request is reported as a duplicate.
+     * @param requests Users to insert, read lazily so the whole request never has to be held in memory.
+     * @return One result per item, in request order.
+     */
+    public List<UserProvisioningResult> provisionUsers(Iterator<RegisterRequest> requests) {
+        List<UserProvisioningResult> results = new ArrayList<>();
+        Set<String> requestedEmails = new HashSet<>();
+        List<RegisterRequest> batch = new ArrayList<>(batchSize);
+        List<UserProvisioningResult> batchResults = new ArrayList<>(batchSize);
+
+        for (int index = 0; requests.hasNext(); index++) {
+            RegisterRequest request = requests.next();
+            String email = request == null ? null : User.normalizeEmail(request.getEmail());
+            UserProvisioningResult result = new UserProvisioningResult(index, null, email, UserProvisioningResult.Status.CREATED, null);
+            results.add(result);
+
+            if (email == null || email.isEmpty() || request.getPassword() == null || request.getPassword().isEmpty()) {
+                result.setStatus(UserProvisioningResult.Status.REJECTED);
+                result.setMessage("Email and password are required.");
+                continue;
+            }
+            if (!requestedEmails.add(email)) {
+                result.setStatus(UserProvisioningResult.Status.DUPLICATE);
+                result.setMessage("Email appears earlier in the request.");
+                continue;
+            }
+
+            batch.add(request);
+            batchResults.add(result);
+            if (batch.size() == batchSize) {
+                writeBatch(batch, batchResults);
+            }
+        }
+        writeBatch(batch, batchResults);
+
+        return results;
+    }
+
+    /**
+     * Skips the emails already in use, hashes the remaining passwords and writes the users in one transaction,
+     * then empties the batch.
+     */
+    private void writeBatch(List<RegisterRequest> batch, List<UserProvisioningResult> batchResults) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Set<String> existingEmails = userRepository.findExistingEmails(batchResults.stream()
+                .map(UserProvisioningResult::getEmail)
+                .toList());
+
+        List<String> rawPasswords = new ArrayList<>(batch.size());
+        List<UserProvisioningResult> newResults = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            UserProvisioningResult result = batchResults.get(i);
+            if (existingEmails.contains(result.getEmail())) {
+                result.setStatus(UserProvisioningResult.Status.DUPLICATE);
+                result.setMessage("Email is already in use.");
+            } else {
+                rawPasswords.add(batch.get(i).getPassword());
+                newResults.add(result);
+            }
+        }
+
+        List<User> users = new ArrayList<>(newResults.size());
+        try {
+            List<String> hashes = passwordHasher.encodeAll(rawPasswords);
+            int next = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                if (batchResults.get(i).getStatus() == UserProvisioningResult.Status.CREATED) {
+                    users.add(User.builder()
+                            .name(batch.get(i).getName())
+                            .email(batchResults.get(i).getEmail())
+                            .password(hashes.get(next++))
+                            .role(Role.ROLE_USER)
+                            .build());
+                }
+            }
+        } catch (RuntimeException e) {
+            newResults.forEach(result -> fail(result, e));
+            batch.clear();
+            batchResults.clear();
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                users.forEach(entityManager::persist);
+                entityManager.flush();
+                entityManager.clear();
+            });
+            for (int i = 0; i < users.size(); i++) {
+                newResults.get(i).setId(users.get(i).getId());
+            }
+        } catch (RuntimeException e) {
+            // A user registered concurrently can still make the batch fail; insert one by one to tell which
+            for (int i = 0; i < users.size(); i++) {
+                writeUser(users.get(i), newResults.get(i));
+            }
+        }
+        users.forEach(user -> principalService.evict(user.getEmail()));
+        batch.clear();
+        batchResults.clear();
+    }
+
+    /**
+     * Inserts one user of a batch that could not be written as a whole.
+     */
+    private void writeUser(User user, UserProvisioningResult result) {
+        user.setId(null);
+        try {
+            userRepository.saveAndFlush(user);
+            result.setId(user.getId());
+        } catch (DataIntegrityViolationException e) {
+            result.setStatus(UserProvisioningResult.Status.DUPLICATE);
+            result.setMessage("Email is already in use.");
+        } catch (RuntimeException e) {
+            fail(result, e);
+        }
+    }
+
+    private static void fail(UserProvisioningResult result, RuntimeException e) {
+        result.setStatus(UserProvisioningResult.Status.FAILED);
+        result.setMessage(e.getMessage());
+    }
+}
@@ -0,0 +1,31 @@
+-- Schema of the entities, created only where missing. With ddl-auto=create-drop Hibernate has already created the
+-- tables and these statements do nothing; with ddl-auto=validate (the "prod" profile) they run first and create the
+-- schema of a new database, which Hibernate then validates.
+CREATE SEQUENCE IF NOT EXISTS _user_seq START WITH 1 INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS _user (
+    id bigint NOT NULL PRIMARY KEY,
+    email varchar(255) NOT NULL,
+    name varchar(255),
+    password varchar(255),
+    role varchar(255) CHECK (role IN ('ROLE_ADMIN', 'ROLE_USER'))
+);
+
+CREATE SEQUENCE IF NOT EXISTS student_sequence START WITH 1 INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS student (
+    id bigint NOT NULL PRIMARY KEY,
+    name varchar(255)
+);
+
+CREATE TABLE IF NOT EXISTS refresh_token (
+    token_hash varchar(44) NOT NULL PRIMARY KEY,
+    email varchar(255),
+    expires_at bigint NOT NULL
+);
+CREATE INDEX IF NOT EXISTS refresh_token_expires_at_idx ON refresh_token (expires_at);
+
+-- Unique email index of the entity mapping, which ddl-auto=validate does not create. Under create-drop Hibernate has
+-- already created it as a unique constraint, whose index has the same name, so this does nothing.
+CREATE UNIQUE INDEX IF NOT EXISTS ux_user_email ON _user (email);
+-- Earlier versions replaced that index with a covering one holding the password hashes; the mapped index is the only
+-- email index now
+DROP INDEX IF EXISTS ux_user_email_login;
@@ -0,0 +1,135 @@
+package com.example.demo.auth.controller;
+
+import com.example.demo.auth.AuthenticationReponse;
+import com.example.demo.auth.AuthenticationRequest;
+import com.example.demo.auth.RefreshRequest;
+import com.example.demo.auth.RegisterRequest;
+import com.example.demo.auth.service.AuthenticationService;
+import com.example.demo.security.service.CompactTokenService;
+import com.example.demo.security.service.ReactivePrincipalService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Reactive counterpart of AuthenticationController for the reactive deployment mode, backed by the same
+ * AuthenticationService.
+ * Logins look the user up through R2DBC and check the password on the password hashing executor, so no event loop
+ * thread ever blocks. The other endpoints run the shared blocking service methods on Reactor's bounded elastic scheduler.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/v1/auth")
+@RequiredArgsConstructor
+public class ReactiveAuthenticationController {
+
+    // Service to handle authentication operations
+    private final AuthenticationService authenticationService;
+
+    // Service loading users without blocking
+    private final ReactivePrincipalService reactivePrincipalService;
+
+    // Service issuing compact tokens, used to check whether the format is enabled
+    private final CompactTokenService compactTokenService;
+
+    /**
+     * Endpoint to register a new user.
+     * @param request Contains user registration details.
+     * @param serverRequest The HTTP request, used for the client address.
+     * @return Authentication response with JWT token.
+     */
+    @PostMapping(path = "/register")
+    public Mono<AuthenticationReponse> register(@RequestBody RegisterRequest request, ServerHttpRequest serverRequest) {
+        return Mono.fromFuture(() -> authenticationService.register(request, clientAddress(serverRequest)));
+    }
+
+    /**
+     * Endpoint to authenticate an existing user.
+     * @param request Contains user authentication details.
+     * @param serverRequest The HTTP request, used for the client address.
+     * @return Authentication response with JWT token.
+     */
+    @PostMapping(path = "/authenticate")
+    public Mono<AuthenticationReponse> authenticate(@RequestBody AuthenticationRequest request,
+                                                    ServerHttpRequest serverRequest) {
+        return Mono.fromFuture(() -> authenticationService.authenticate(request, clientAddress(serverRequest),
+                email -> reactivePrincipalService.findUser(email).toFuture()));
+    }
+
+    /**
+     * Endpoint to renew a session with a refresh token, without checking the password again.
+     * @param request Contains the refresh token.
+     * @return Authentication response with a new JWT token and refresh token.
+     */
+    @PostMapping(path = "/refresh")
+    public Mono<AuthenticationReponse> refresh(@RequestBody RefreshRequest request) {
+        return Mono.fromCallable(() -> authenticationService.refresh(request))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Endpoint to end a session, revoking its JWT token before it expires.
+     * @param authHeader The "Authorization" header carrying the JWT token as "Bearer <token>".
+     * @param request Optionally contains the refresh token of the session, which is used up as well.
+     * @return Empty response.
+     */
+    @PostMapping(path = "/logout")
+    public Mono<ResponseEntity<Void>> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader,
+                                             @RequestBody(required = false) Mono<RefreshRequest> request) {
+        if (!authHeader.startsWith("Bearer ")) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return request.defaultIfEmpty(new RefreshRequest())
+                .publishOn(Schedulers.boundedElastic())
+                .map(body -> {
+                    authenticationService.logout(authHeader.substring(7), body);
+                    return ResponseEntity.noContent().build();
+                });
+    }
+
+    /**
+     * Endpoint to exchange a JWT token for a compact token used on internal service-to-service calls.
+     * @param authHeader The "Authorization" header carrying the JWT token as "Bearer <token>".
+     * @return Authentication response with the compact token, or 404 if compact tokens are disabled.
+     */
+    @PostMapping(path = "/compact-token")
+    public Mono<ResponseEntity<AuthenticationReponse>> compactToken(@RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader) {
+        if (!compactTokenService.isEnabled()) {
+            return Mono.just(ResponseEntity.notFound().build());
+        }
+        if (!authHeader.startsWith("Bearer ")) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return Mono.fromCallable(() -> ResponseEntity.ok(authenticationService.issueCompactToken(authHeader.substring(7))))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Responds with 403 when a login fails, the status the servlet mode gives failed logins.
+     * @param exception The failure raised while checking the credentials.
+     * @return Empty response denying the request.
+     */
+    @ExceptionHandler(AuthenticationException.class)
+    public ResponseEntity<Void> handleAuthenticationFailure(AuthenticationException exception) {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+    }
+
+    private static String clientAddress(ServerHttpRequest request) {
+        InetSocketAddress address = request.getRemoteAddress();
+        return address == null || address.getAddress() == null ? "" : address.getAddress().getHostAddress();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.demo.configuration;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the reactive deployment mode, enabled with the "reactive" profile
+ * (spring.main.web-application-type=reactive).
+ * Requests are served by WebFlux on Netty's event loops. The hot read paths (principal lookups and student listings)
+ * go through a non-blocking R2DBC connection pool, while writes keep using the shared JPA services off the event loop.
+ * The pool is not exposed as a ConnectionFactory bean, because that would make Spring Boot back off from the JDBC
+ * DataSource the JPA services need.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfiguration {
+
+    // Pool of R2DBC connections used by the reactive repositories
+    private final ConnectionPool connectionPool;
+
+    /**
+     * Creates the R2DBC connection pool.
+     * @param url R2DBC URL of the database, e.g. r2dbc:postgresql://localhost:5432/sectest.
+     * @param username Database user.
+     * @param password Password of the database user.
+     * @param maxSize Maximum number of pooled connections.
+     * @param maxAcquireTime How long a query waits for a connection before it fails.
+     */
+    public ReactiveConfiguration(@Value("${app.reactive.r2dbc.url}") String url,
+                                 @Value("${app.reactive.r2dbc.username:}") String username,
+                                 @Value("${app.reactive.r2dbc.password:}") String password,
+                                 @Value("${app.reactive.r2dbc.pool-size:20}") int maxSize,
+                                 @Value("${app.reactive.r2dbc.max-acquire-time:PT2S}") Duration maxAcquireTime) {
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (!username.isEmpty()) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        if (!password.isEmpty()) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+                .name("auth-r2dbc")
+                .initialSize(Math.min(maxSize, 10))
+                .maxSize(maxSize)
+                .maxAcquireTime(maxAcquireTime)
+                .build());
+    }
+
+    /**
+     * Provides the client the reactive repositories run their queries with.
+     * @return DatabaseClient over the R2DBC connection pool.
+     */
+    @Bean
+    public DatabaseClient reactiveDatabaseClient() {
+        return DatabaseClient.create(connectionPool);
+    }
+
+    /**
+     * Serves the reactive mode with Netty rather than Tomcat, which is on the class path for the servlet mode and
+     * would otherwise be preferred.
+     * @return Factory of the Netty web server.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Closes the pooled connections.
+     */
+    @PreDestroy
+    public void closeConnectionPool() {
+        connectionPool.dispose();
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.demo.security.authfilter;
+
+import com.example.demo.security.config.RouteTable;
+import com.example.demo.security.model.VerifiedToken;
+import com.example.demo.security.service.ReactivePrincipalService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Reactive counterpart of JwtAuthFilter for the reactive deployment mode.
+ * Delegates the route rules, token checks, metrics and audit events to the same TokenAuthenticator as the servlet
+ * filter. Token verification is CPU bound and cached, so it runs on the event loop; only a principal missing from the
+ * cache is loaded, without blocking, through R2DBC.
+ * Not a bean: ReactiveSecurityConfiguration adds it to the security filter chain, so WebFlux does not also apply it
+ * to every request on its own.
+ */
+public class JwtAuthWebFilter implements WebFilter {
+
+    // Authentication steps shared with the servlet mode
+    private final TokenAuthenticator tokenAuthenticator;
+
+    // Service to resolve the user details of a verified token without blocking
+    private final ReactivePrincipalService reactivePrincipalService;
+
+    /**
+     * Creates the filter.
+     * @param tokenAuthenticator Authentication steps shared with the servlet mode.
+     * @param reactivePrincipalService Service to resolve the user details of a verified token.
+     */
+    public JwtAuthWebFilter(TokenAuthenticator tokenAuthenticator, ReactivePrincipalService reactivePrincipalService) {
+        this.tokenAuthenticator = tokenAuthenticator;
+        this.reactivePrincipalService = reactivePrincipalService;
+    }
+
+    /**
+     * Extracts and validates the JWT or compact token from the "Authorization" header and continues the chain with the
+     * authentication in the reactive security context, or ends the request with 403.
+     * @param exchange The current request and response.
+     * @param chain The rest of the filter chain.
+     * @return Completion of the request.
+     */
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        // Public routes need no authentication, so the token is not even read
+        final RouteTable.Route route = tokenAuthenticator.protectedRoute(
+                exchange.getRequest().getPath().pathWithinApplication().value());
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+
+        final String credential = tokenAuthenticator.credential(
+                exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+        if (credential == null) {
+            return deny(exchange);
+        }
+
+        // An empty result means the request is denied; the flag keeps a completed chain from being taken for one
+        return authenticate(route, credential, clientAddress(exchange))
+                .flatMap(authentication -> chain.filter(exchange)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication))
+                        .thenReturn(Boolean.TRUE))
+                .switchIfEmpty(Mono.defer(() -> deny(exchange).thenReturn(Boolean.FALSE)))
+                .then();
+    }
+
+    /**
+     * Resolves the user details of the token and checks the authority the route needs.
+     * @return The authentication of the request, or empty if the request must be denied.
+     */
+    private Mono<Authentication> authenticate(RouteTable.Route route, String credential, String clientAddress) {
+        Mono<UserDetails> userDetails = tokenAuthenticator.isCompactToken(credential)
+                ? Mono.justOrEmpty(tokenAuthenticator.resolveCompactToken(credential, clientAddress))
+                : resolveJwt(credential, clientAddress);
+        return userDetails.flatMap(user -> Mono.justOrEmpty(tokenAuthenticator.authorize(route, user, clientAddress)));
+    }
+
+    /**
+     * Verifies a JWT and resolves the user details of its subject without blocking.
+     * @return User details of the token, or empty if the request must be denied.
+     */
+    private Mono<UserDetails> resolveJwt(String jwt, String clientAddress) {
+        final VerifiedToken token = tokenAuthenticator.verifyJwt(jwt, clientAddress);
+        if (token == null) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return reactivePrincipalService.loadPrincipal(token)
+                    .onErrorResume(AuthenticationException.class, e -> Mono.empty())
+                    .map(Loaded::new)
+                    .defaultIfEmpty(new Loaded(null))
+                    .flatMap(loaded -> Mono.justOrEmpty(tokenAuthenticator.acceptPrincipal(token, loaded.userDetails(),
+                            System.nanoTime() - start, clientAddress)));
+        });
+    }
+
+    /**
+     * Ends the request with 403, like the servlet mode.
+     */
+    private static Mono<Void> deny(ServerWebExchange exchange) {
+        exchange.getResponse().setStatusCode(HttpStatus.FORBIDDEN);
+        return exchange.getResponse().setComplete();
+    }
+
+    private static String clientAddress(ServerWebExchange exchange) {
+        InetSocketAddress address = exchange.getRequest().getRemoteAddress();
+        return address == null ? null : address.getHostString();
+    }
+
+    /**
+     * Outcome of the principal lookup; a missing principal is a value too, so it is checked and counted like one.
+     */
+    private record Loaded(UserDetails userDetails) {
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.security.config;
+
+import com.example.demo.security.authfilter.JwtAuthWebFilter;
+import com.example.demo.security.authfilter.TokenAuthenticator;
+import com.example.demo.security.service.ReactivePrincipalService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+
+/**
+ * Configuration of Spring Security for the reactive deployment mode.
+ * Applies the same RouteTable rules as SecurityConfiguration, with JwtAuthWebFilter in place of JwtAuthFilter.
+ */
+@Configuration
+@EnableWebFluxSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSecurityConfiguration {
+
+    /**
+     * Configures the security filter chain with the route rules and the JWT web filter.
+     * Requests are stateless and unauthenticated requests get 403, as in the servlet mode.
+     * @param http ServerHttpSecurity instance.
+     * @param routeTable Access rules of the routes.
+     * @param tokenAuthenticator Authentication steps shared with the servlet mode.
+     * @param reactivePrincipalService Service to resolve the user details of a verified token.
+     * @return SecurityWebFilterChain instance.
+     */
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http,
+                                                         RouteTable routeTable,
+                                                         TokenAuthenticator tokenAuthenticator,
+                                                         ReactivePrincipalService reactivePrincipalService) {
+        JwtAuthWebFilter jwtAuthWebFilter = new JwtAuthWebFilter(tokenAuthenticator, reactivePrincipalService);
+        return http
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .logout(ServerHttpSecurity.LogoutSpec::disable)
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .authorizeExchange(exchange -> {
+                    for (RouteTable.Route route : routeTable.getRoutes()) {
+                        var matcher = exchange.pathMatchers(route.getPattern());
+                        switch (route.getAccess()) {
+                            case PUBLIC -> matcher.permitAll();
+                            case AUTHENTICATED -> matcher.authenticated();
+                            case AUTHORITY -> matcher.hasAuthority(route.getAuthority());
+                        }
+                    }
+                    exchange.anyExchange().authenticated();
+                })
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.FORBIDDEN)))
+                .addFilterAt(jwtAuthWebFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+                .build();
+    }
+
+    /**
+     * Provides the authentication manager AuthenticationService is built with, which the servlet mode gets from
+     * Spring Security's servlet configuration. Logins in the reactive mode load the user through R2DBC instead.
+     * @param authenticationProvider Authentication provider checking emails and passwords.
+     * @return AuthenticationManager instance.
+     */
+    @Bean
+    public AuthenticationManager authenticationManager(AuthenticationProvider authenticationProvider) {
+        return new ProviderManager(authenticationProvider);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.demo.security.service;
+
+import com.example.demo.security.model.VerifiedToken;
+import com.example.demo.user.model.User;
+import com.example.demo.user.repository.ReactiveUserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of PrincipalService for the reactive deployment mode.
+ * Principals are resolved the same way and share the same cache, so evictions made by the JPA write paths apply to both;
+ * only the lookups that miss the cache differ, going through R2DBC instead of blocking on JDBC.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactivePrincipalService implements ReactiveUserDetailsService {
+
+    // Non-blocking lookups of users by email
+    private final ReactiveUserRepository reactiveUserRepository;
+
+    // Resolves principals from claims or from the shared cache
+    private final PrincipalService principalService;
+
+    /**
+     * Resolves the principal the verified token was issued to, loading the user only if it is not cached.
+     * @param token Verified token.
+     * @return UserDetails of the token's subject, or empty if the subject no longer exists.
+     */
+    public Mono<UserDetails> loadPrincipal(VerifiedToken token) {
+        return Mono.defer(() -> {
+            UserDetails principal = principalService.resolveWithoutLoading(token);
+            if (principal != null) {
+                return Mono.just(principal);
+            }
+            return reactiveUserRepository.findByEmail(token.getSubject())
+                    .doOnNext(principalService::cachePrincipal)
+                    .cast(UserDetails.class);
+        });
+    }
+
+    /**
+     * Loads a user by email from the database, bypassing the cache, so a login always checks the current password.
+     * @param email Email of the user.
+     * @return The user, or empty if no user has the email.
+     */
+    public Mono<User> findUser(String email) {
+        return reactiveUserRepository.findByEmail(email);
+    }
+
+    /**
+     * Loads a user by email from the database, like the servlet mode's UserDetailsService.
+     * @param email Email of the user.
+     * @return UserDetails of the user, or empty if no user has the email.
+     */
+    @Override
+    public Mono<UserDetails> findByUsername(String email) {
+        return findUser(email).cast(UserDetails.class);
+    }
+}
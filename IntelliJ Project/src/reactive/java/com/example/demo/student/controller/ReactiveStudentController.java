@@ -0,0 +1,111 @@
+package com.example.demo.student.controller;
+
+import com.example.demo.student.model.Student;
+import com.example.demo.student.model.StudentBatchResult;
+import com.example.demo.student.model.StudentCacheStatistics;
+import com.example.demo.student.repository.ReactiveStudentRepository;
+import com.example.demo.student.service.StudentBatchService;
+import com.example.demo.student.service.StudentService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+/**
+ * Reactive counterpart of StudentController for the reactive deployment mode.
+ * Listings are read through R2DBC without blocking; the streamed listing is written as rows arrive and only requests
+ * more rows as the client reads them. Lookups by id and writes use the shared StudentService and StudentBatchService,
+ * including the student cache, on Reactor's bounded elastic scheduler.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/v1/students")
+@RequiredArgsConstructor
+public class ReactiveStudentController {
+
+    // Media type of the streaming listing: one JSON document per line
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    // Non-blocking reads of students
+    private final ReactiveStudentRepository reactiveStudentRepository;
+
+    // Service to handle student operations
+    private final StudentService studentService;
+
+    // Service to handle bulk student imports
+    private final StudentBatchService studentBatchService;
+
+    /**
+     * Retrieves one page of students ordered by id.
+     * The next page is requested with after set to the id of the last student returned.
+     * @param after Id of the last student of the previous page; omitted for the first page.
+     * @param limit Maximum number of students to return.
+     * @return Page of students.
+     */
+    @GetMapping(path = "")
+    public Flux<Student> getStudents(@RequestParam(required = false) Long after,
+                                     @RequestParam(defaultValue = "100") int limit) {
+        return reactiveStudentRepository.findPage(after == null ? Long.MIN_VALUE : after, StudentService.pageSize(limit));
+    }
+
+    /**
+     * Streams all students as newline-delimited JSON, with backpressure from the client down to the database.
+     * Selected with the header "Accept: application/x-ndjson".
+     * @return Every student.
+     */
+    @GetMapping(path = "", produces = APPLICATION_NDJSON_VALUE)
+    public Flux<Student> streamStudents() {
+        return reactiveStudentRepository.streamAll();
+    }
+
+    /**
+     * Retrieves the hit, miss and eviction counters of the student cache.
+     * @return Statistics of the student cache.
+     */
+    @GetMapping(path = "/cache")
+    public StudentCacheStatistics getCacheStatistics() {
+        return studentService.getCacheStatistics();
+    }
+
+    /**
+     * Retrieves a specific student by ID, served from the student cache when possible.
+     * @param studentId ID of the student to retrieve.
+     * @return Student details.
+     */
+    @GetMapping(path = "/{studentId}")
+    public Mono<Student> getStudent(@PathVariable Long studentId) {
+        return Mono.fromCallable(() -> studentService.getStudent(studentId))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @PostMapping
+    public Mono<Void> addStudent(@RequestBody Student student) {
+        return Mono.fromRunnable(() -> studentService.addStudent(student))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    /**
+     * Imports many students in one request, inserting them in JDBC batches.
+     * The body is either a JSON array or newline-delimited JSON; it is decoded incrementally and read one student at a
+     * time by the batch service. An item that is not valid JSON stops the import with 400 (see StudentExceptionHandler).
+     * @param students Students decoded from the request body.
+     * @return One result per submitted student, in request order.
+     */
+    @PostMapping(path = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public Mono<List<StudentBatchResult>> addStudents(@RequestBody Flux<Student> students) {
+        return Mono.fromCallable(() -> studentBatchService.addStudents(students.toIterable().iterator()))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
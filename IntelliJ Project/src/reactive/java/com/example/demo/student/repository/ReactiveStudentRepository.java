@@ -0,0 +1,58 @@
+package com.example.demo.student.repository;
+
+import com.example.demo.student.model.Student;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+/**
+ * Non-blocking reads of students over R2DBC, used by the reactive deployment mode.
+ * Reads the same "student" table as StudentRepository; students are only ever written through JPA.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveStudentRepository {
+
+    // Rows fetched per round-trip while streaming, matching the fetch size of StudentRepository.streamAllByOrderByIdAsc
+    private static final int FETCH_SIZE = 500;
+
+    // Client running the queries on the R2DBC connection pool
+    private final DatabaseClient reactiveDatabaseClient;
+
+    /**
+     * Finds one page of students ordered by id, starting after the given id.
+     * @param after Id of the last student of the previous page.
+     * @param limit Maximum number of students to return.
+     * @return Page of students.
+     */
+    public Flux<Student> findPage(long after, int limit) {
+        return reactiveDatabaseClient.sql("select id, name from student where id > :after order by id limit :limit")
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(ReactiveStudentRepository::toStudent)
+                .all();
+    }
+
+    /**
+     * Streams all students ordered by id.
+     * Rows are fetched in batches as the subscriber requests them, so a slow client holds back the query instead of
+     * students piling up in memory.
+     * @return Every student.
+     */
+    public Flux<Student> streamAll() {
+        return reactiveDatabaseClient.sql("select id, name from student order by id")
+                .filter(statement -> statement.fetchSize(FETCH_SIZE))
+                .map(ReactiveStudentRepository::toStudent)
+                .all();
+    }
+
+    private static Student toStudent(Readable row) {
+        Student student = new Student(row.get("name", String.class));
+        student.setId(row.get("id", Long.class));
+        return student;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.demo.user.controller;
+
+import com.example.demo.auth.RegisterRequest;
+import com.example.demo.user.model.UserProvisioningResult;
+import com.example.demo.user.service.UserProvisioningService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+/**
+ * Reactive counterpart of UserController for the reactive deployment mode, backed by the same UserProvisioningService.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/v1/users")
+@RequiredArgsConstructor
+public class ReactiveUserController {
+
+    // Media type of newline-delimited JSON: one JSON document per line
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    // Service to handle bulk user provisioning
+    private final UserProvisioningService userProvisioningService;
+
+    /**
+     * Provisions many users in one request, hashing their passwords in parallel and inserting them in JDBC batches.
+     * The body is decoded incrementally and read one user at a time on Reactor's bounded elastic scheduler.
+     * @param users Registration requests decoded from the request body.
+     * @return One result per submitted user, in request order.
+     */
+    @PostMapping(path = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public Mono<List<UserProvisioningResult>> provisionUsers(@RequestBody Flux<RegisterRequest> users) {
+        return Mono.fromCallable(() -> userProvisioningService.provisionUsers(users.toIterable().iterator()))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.user.repository;
+
+import com.example.demo.user.model.User;
+import com.example.demo.user.roles.Role;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking lookups of users over R2DBC, used by the reactive deployment mode.
+ * Reads the same "_user" table as UserRepository; users are only ever written through JPA.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequiredArgsConstructor
+public class ReactiveUserRepository {
+
+    // Client running the queries on the R2DBC connection pool
+    private final DatabaseClient reactiveDatabaseClient;
+
+    /**
+     * Finds a user by email, ignoring case; like UserRepository.findByEmail, a single probe of the unique email index.
+     * @param email Email as entered by the user.
+     * @return The user, or empty if no user has the email.
+     */
+    public Mono<User> findByEmail(String email) {
+        if (email == null) {
+            return Mono.empty();
+        }
+        return reactiveDatabaseClient.sql("select id, name, email, password, role from _user where email = :email")
+                .bind("email", User.normalizeEmail(email))
+                .map(ReactiveUserRepository::toUser)
+                .one();
+    }
+
+    private static User toUser(Readable row) {
+        return new User(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("email", String.class),
+                row.get("password", String.class),
+                Role.valueOf(row.get("role", String.class))
+        );
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.demo.audit.service;
+
+import com.example.demo.audit.model.AuditBatch;
+import com.example.demo.audit.model.AuditEventType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the audit log and its sinks. The COPY sink needs a PostgreSQL database given on the command line, e.g.
+ * -Daudit.test.datasource.url=jdbc:postgresql://localhost:5432/postgres -Daudit.test.datasource.username=postgres
+ */
+class AuditLogTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void writesEveryEventOnceInPublishingOrderOfEachThread() throws Exception {
+		RecordingSink sink = new RecordingSink();
+		AuditLog auditLog = new AuditLog(64, AuditLog.OverflowPolicy.BLOCK, Duration.ofSeconds(10), 16,
+				Duration.ofMillis(1), List.of(sink), new SimpleMeterRegistry());
+		auditLog.start();
+
+		int threads = 4;
+		int eventsPerThread = 20_000;
+		String[] subjects = new String[eventsPerThread];
+		for (int i = 0; i < eventsPerThread; i++) {
+			subjects[i] = String.valueOf(i);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			String thread = "thread-" + t;
+			executor.submit(() -> {
+				for (int i = 0; i < eventsPerThread; i++) {
+					auditLog.publish(AuditEventType.LOGIN_SUCCEEDED, subjects[i], thread);
+				}
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+		auditLog.stop();
+
+		assertEquals(0, auditLog.getDropped());
+		assertEquals(threads * eventsPerThread, auditLog.getWritten());
+		assertEquals(threads * eventsPerThread, sink.events.size());
+		for (int t = 0; t < threads; t++) {
+			String thread = "thread-" + t;
+			List<String> ofThread = sink.events.stream()
+					.filter(event -> event.endsWith(" " + thread))
+					.toList();
+			assertEquals(eventsPerThread, ofThread.size());
+			for (int i = 0; i < eventsPerThread; i++) {
+				assertEquals(i + " " + thread, ofThread.get(i));
+			}
+		}
+	}
+
+	@Test
+	void dropsAndCountsEventsWhileTheBufferIsFull() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		RecordingSink sink = new RecordingSink() {
+			@Override
+			public void write(AuditBatch batch) {
+				awaitQuietly(release);
+				super.write(batch);
+			}
+		};
+		AuditLog auditLog = new AuditLog(16, AuditLog.OverflowPolicy.DROP, Duration.ZERO, 16,
+				Duration.ofMillis(1), List.of(sink), new SimpleMeterRegistry());
+		auditLog.start();
+
+		for (int i = 0; i < 100; i++) {
+			auditLog.publish(AuditEventType.TOKEN_INVALID, null, "127.0.0.1");
+		}
+		release.countDown();
+		auditLog.stop();
+
+		assertTrue(auditLog.getDropped() >= 100 - 32);
+		assertEquals(100, auditLog.getDropped() + sink.events.size());
+	}
+
+	@Test
+	void escapesUserInputAndRotatesTheFile() throws Exception {
+		Path file = directory.resolve("audit.log");
+		FileAuditSink sink = new FileAuditSink(file.toString(), DataSize.ofBytes(200), 2, false);
+		AuditBatch batch = new AuditBatch(4);
+		batch.add(0, AuditEventType.LOGIN_FAILED, "evil\n1970-01-01T00:00:00Z\tLOGIN_SUCCEEDED", "10.0.0.1");
+		sink.write(batch);
+
+		List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		assertEquals(List.of("1970-01-01T00:00:00Z\tLOGIN_FAILED\tevil\\n1970-01-01T00:00:00Z\\tLOGIN_SUCCEEDED\t10.0.0.1"), lines);
+
+		batch.clear();
+		batch.add(0, AuditEventType.REGISTERED, "user@gmail.com", null);
+		for (int i = 0; i < 20; i++) {
+			sink.write(batch);
+			Thread.sleep(2);
+		}
+		sink.close();
+
+		try (Stream<Path> files = Files.list(directory)) {
+			List<Path> all = files.toList();
+			assertEquals(3, all.size());
+			for (Path path : all) {
+				assertTrue(Files.size(path) <= 200);
+			}
+		}
+		assertTrue(Files.readString(file).endsWith("\tREGISTERED\tuser@gmail.com\t\\N\n"));
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "audit.test.datasource.url", matches = ".+")
+	void copiesBatchesIntoPostgres() throws Exception {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(System.getProperty("audit.test.datasource.url"),
+				System.getProperty("audit.test.datasource.username", ""),
+				System.getProperty("audit.test.datasource.password", ""));
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("drop table if exists auth_audit_test");
+		PostgresAuditSink sink = new PostgresAuditSink(dataSource, "auth_audit_test");
+
+		AuditBatch batch = new AuditBatch(1000);
+		for (int i = 0; i < 1000; i++) {
+			batch.add(System.currentTimeMillis(), AuditEventType.LOGIN_FAILED, "user\t" + i + "@gmail.com", null);
+		}
+		sink.write(batch);
+
+		assertEquals(1000, jdbcTemplate.queryForObject("select count(*) from auth_audit_test", Integer.class));
+		assertEquals(1, jdbcTemplate.queryForObject(
+				"select count(*) from auth_audit_test where subject = E'user\\t7@gmail.com' and client_address is null",
+				Integer.class));
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static class RecordingSink implements AuditSink {
+
+		// Only the writer thread adds, and the test reads after stopping it
+		final List<String> events = new ArrayList<>();
+
+		@Override
+		public void write(AuditBatch batch) {
+			for (int i = 0; i < batch.size(); i++) {
+				events.add(batch.getSubject(i) + " " + batch.getClientAddress(i));
+			}
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package com.example.demo.auth.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketsTest {
+
+	@Test
+	void collidingKeysDoNotResetAnotherKeysBucket() {
+		// Four slots for sixteen keys: most keys collide with another one
+		TokenBuckets buckets = new TokenBuckets(4, 1, Duration.ofHours(1), true);
+		List<String> admitted = new ArrayList<>();
+		for (int i = 0; i < 16; i++) {
+			String key = "user" + i + "@example.com";
+			if (buckets.tryAcquire(key) == 0) {
+				admitted.add(key);
+			}
+		}
+
+		// A colliding key shares a bucket in use instead of starting a fresh one, so at most one key per slot gets in
+		assertTrue(admitted.size() <= 4);
+		for (String key : admitted) {
+			assertTrue(buckets.tryAcquire(key) > 0, key + " got a fresh bucket");
+		}
+	}
+
+	@Test
+	void refilledBucketPassesToAnotherKey() throws InterruptedException {
+		TokenBuckets buckets = new TokenBuckets(4, 1, Duration.ofMillis(20), true);
+		for (int i = 0; i < 16; i++) {
+			buckets.tryAcquire("user" + i + "@example.com");
+		}
+		Thread.sleep(50);
+		assertEquals(0, buckets.tryAcquire("user0@example.com"));
+	}
+}
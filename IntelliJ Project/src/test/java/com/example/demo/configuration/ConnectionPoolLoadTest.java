@@ -0,0 +1,167 @@
+package com.example.demo.configuration;
+
+import com.example.demo.DemoApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load-test harness comparing request latency and connection pool wait time with and without the "perf" profile.
+ * Every request is an authenticated read of one student, with the principal and student caches turned off, so each one
+ * runs the login lookup by email and a lookup by id against the database.
+ * Runs only against a database given on the command line, which is dropped and recreated, e.g.:
+ * <pre>
+ * mvn test -Dtest=ConnectionPoolLoadTest -Dloadtest.datasource.url=jdbc:postgresql://localhost:5432/loadtest \
+ *     -Dloadtest.datasource.username=postgres -Dloadtest.datasource.password=secret
+ * </pre>
+ * Optional: loadtest.profiles (default "default,perf"), loadtest.concurrency (32), loadtest.duration-seconds (20).
+ */
+@EnabledIfSystemProperty(named = "loadtest.datasource.url", matches = ".+")
+class ConnectionPoolLoadTest {
+
+	// Base64 HS256 secret of the test instances
+	private static final String JWT_SECRET = "dGVzdC1vbmx5LXNlY3JldC1mb3ItdGhlLWF1dGhlbnRpY2F0aW9uLWFwaS1pbnN0YW5jZXM=";
+
+	private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+	private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 32);
+	private static final long DURATION_NANOS = TimeUnit.SECONDS.toNanos(Long.getLong("loadtest.duration-seconds", 20));
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	void comparesLatencyAcrossProfiles() throws Exception {
+		for (String profile : System.getProperty("loadtest.profiles", "default,perf").split(",")) {
+			Result result = run(profile.trim());
+			System.out.printf("%-8s %6d req/s  p50 %6.2f ms  p99 %6.2f ms  p999 %6.2f ms  pool wait mean %6.3f ms max %6.3f ms  " +
+							"connections in use %5.1f (suggested pool size %d)%n",
+					profile, result.throughput(), result.p50(), result.p99(), result.p999(),
+					result.poolWaitMeanMillis(), result.poolWaitMaxMillis(), result.connectionsInUse(),
+					(int) Math.ceil(result.connectionsInUse() * 1.25));
+		}
+	}
+
+	private Result run(String profile) throws Exception {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+				.profiles(profile)
+				.run(
+						"--spring.datasource.url=" + System.getProperty("loadtest.datasource.url"),
+						"--spring.datasource.username=" + System.getProperty("loadtest.datasource.username", ""),
+						"--spring.datasource.password=" + System.getProperty("loadtest.datasource.password", ""),
+						"--security.principal.cache.maximum-size=0",
+						"--student.cache.type=none",
+						"--security.password.calibrate=false",
+						"--security.jwt.secret=" + JWT_SECRET,
+						"--security.revocation.file=",
+						"--audit.file.enabled=false",
+						"--server.port=0")) {
+			String url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/v1/students/1";
+			HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+					.header("Authorization", "Bearer " + logIn(context))
+					.build();
+			assertEquals(200, client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+
+			// Warm up, then measure
+			drive(request, DURATION_NANOS / 4);
+			MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+			Timer acquire = meterRegistry.get("hikaricp.connections.acquire").timer();
+			Timer usage = meterRegistry.get("hikaricp.connections.usage").timer();
+			long acquireCount = acquire.count();
+			double acquireNanos = acquire.totalTime(TimeUnit.NANOSECONDS);
+			double usageNanos = usage.totalTime(TimeUnit.NANOSECONDS);
+
+			long start = System.nanoTime();
+			long[] latencies = drive(request, DURATION_NANOS);
+			long elapsed = System.nanoTime() - start;
+
+			Arrays.sort(latencies);
+			return new Result(
+					latencies.length * TimeUnit.SECONDS.toNanos(1) / elapsed,
+					percentile(latencies, 0.50),
+					percentile(latencies, 0.99),
+					percentile(latencies, 0.999),
+					(acquire.totalTime(TimeUnit.NANOSECONDS) - acquireNanos) / Math.max(1, acquire.count() - acquireCount) / 1e6,
+					acquire.max(TimeUnit.MILLISECONDS),
+					// Little's law: the average number of connections held is the total hold time over the elapsed time
+					(usage.totalTime(TimeUnit.NANOSECONDS) - usageNanos) / elapsed);
+		}
+	}
+
+	/**
+	 * Sends the request from a fixed number of threads, each waiting for its response before sending the next.
+	 * @return Latency of every request, in nanoseconds.
+	 */
+	private long[] drive(HttpRequest request, long durationNanos) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+		long deadline = System.nanoTime() + durationNanos;
+		try {
+			List<Future<long[]>> workers = new ArrayList<>();
+			for (int i = 0; i < CONCURRENCY; i++) {
+				workers.add(executor.submit(() -> {
+					long[] latencies = new long[1024];
+					int count = 0;
+					while (System.nanoTime() < deadline) {
+						long start = System.nanoTime();
+						HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+						if (count == latencies.length) {
+							latencies = Arrays.copyOf(latencies, count * 2);
+						}
+						latencies[count++] = System.nanoTime() - start;
+						assertEquals(200, response.statusCode());
+					}
+					return Arrays.copyOf(latencies, count);
+				}));
+			}
+			long[] all = new long[0];
+			for (Future<long[]> worker : workers) {
+				long[] latencies = worker.get();
+				int offset = all.length;
+				all = Arrays.copyOf(all, offset + latencies.length);
+				System.arraycopy(latencies, 0, all, offset, latencies.length);
+			}
+			assertTrue(all.length > 0);
+			return all;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private String logIn(ConfigurableApplicationContext context) throws Exception {
+		String url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/v1/auth/authenticate";
+		HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"admin@gmail.com\",\"password\":\"admin\"}"))
+				.build(), HttpResponse.BodyHandlers.ofString());
+		Matcher matcher = TOKEN.matcher(response.body());
+		assertTrue(matcher.find(), "admin login failed");
+		return matcher.group(1);
+	}
+
+	private static double percentile(long[] sortedLatencies, double percentile) {
+		int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+		return sortedLatencies[Math.max(0, index)] / 1e6;
+	}
+
+	private record Result(long throughput, double p50, double p99, double p999,
+						  double poolWaitMeanMillis, double poolWaitMaxMillis, double connectionsInUse) {
+	}
+}
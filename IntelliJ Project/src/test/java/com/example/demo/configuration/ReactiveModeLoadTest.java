@@ -0,0 +1,158 @@
+package com.example.demo.configuration;
+
+import com.example.demo.DemoApplication;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load-test harness comparing request latency of the servlet mode and the reactive mode at high concurrency.
+ * Every request is an authenticated read of a page of students, with the principal cache turned off, so each one runs
+ * the principal lookup by email and the listing query against the database: over JDBC on a request thread in the
+ * servlet mode, over R2DBC on the event loop in the reactive mode. With more concurrent requests than Tomcat has request
+ * threads, the servlet mode queues requests while they wait for the database; the slower the database, the more the
+ * tail latency of the two modes differs.
+ * Runs only against a database given on the command line, which is dropped and recreated, and with the reactive Maven
+ * profile, which builds the reactive mode in, e.g.:
+ * <pre>
+ * mvn clean test -Preactive -Dtest=ReactiveModeLoadTest -Dloadtest.datasource.url=jdbc:postgresql://localhost:5432/loadtest \
+ *     -Dloadtest.r2dbc.url=r2dbc:postgresql://localhost:5432/loadtest \
+ *     -Dloadtest.datasource.username=postgres -Dloadtest.datasource.password=secret
+ * </pre>
+ * Optional: loadtest.modes (default "servlet,reactive"), loadtest.concurrency (256), loadtest.duration-seconds (20).
+ */
+@EnabledIfSystemProperty(named = "loadtest.r2dbc.url", matches = ".+")
+class ReactiveModeLoadTest {
+
+	// Base64 HS256 secret of the test instances
+	private static final String JWT_SECRET = "dGVzdC1vbmx5LXNlY3JldC1mb3ItdGhlLWF1dGhlbnRpY2F0aW9uLWFwaS1pbnN0YW5jZXM=";
+
+	private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+	private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 256);
+	private static final long DURATION_NANOS = TimeUnit.SECONDS.toNanos(Long.getLong("loadtest.duration-seconds", 20));
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	void comparesLatencyAcrossModes() throws Exception {
+		for (String mode : System.getProperty("loadtest.modes", "servlet,reactive").split(",")) {
+			Result result = run(mode.trim());
+			System.out.printf("%-8s %6d req/s  p50 %7.2f ms  p99 %7.2f ms  p999 %7.2f ms  max %7.2f ms  (%d concurrent requests)%n",
+					mode, result.throughput(), result.p50(), result.p99(), result.p999(), result.max(), CONCURRENCY);
+		}
+	}
+
+	private Result run(String mode) throws Exception {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+				.profiles(mode.equals("reactive") ? "reactive" : "default")
+				.run(
+						"--spring.datasource.url=" + System.getProperty("loadtest.datasource.url"),
+						"--spring.datasource.username=" + System.getProperty("loadtest.datasource.username", ""),
+						"--spring.datasource.password=" + System.getProperty("loadtest.datasource.password", ""),
+						"--app.reactive.r2dbc.url=" + System.getProperty("loadtest.r2dbc.url"),
+						"--app.reactive.r2dbc.username=" + System.getProperty("loadtest.datasource.username", ""),
+						"--app.reactive.r2dbc.password=" + System.getProperty("loadtest.datasource.password", ""),
+						"--security.principal.cache.maximum-size=0",
+						"--security.password.calibrate=false",
+						"--security.jwt.secret=" + JWT_SECRET,
+						"--security.revocation.file=",
+						"--audit.file.enabled=false",
+						"--server.port=0")) {
+			String url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/v1/students?limit=20";
+			HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+					.header("Authorization", "Bearer " + logIn(context))
+					.build();
+			assertEquals(200, client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+
+			// Warm up, then measure
+			drive(request, DURATION_NANOS / 4);
+			long start = System.nanoTime();
+			long[] latencies = drive(request, DURATION_NANOS);
+			long elapsed = System.nanoTime() - start;
+
+			Arrays.sort(latencies);
+			return new Result(
+					latencies.length * TimeUnit.SECONDS.toNanos(1) / elapsed,
+					percentile(latencies, 0.50),
+					percentile(latencies, 0.99),
+					percentile(latencies, 0.999),
+					latencies[latencies.length - 1] / 1e6);
+		}
+	}
+
+	/**
+	 * Sends the request from a fixed number of threads, each waiting for its response before sending the next.
+	 * @return Latency of every request, in nanoseconds.
+	 */
+	private long[] drive(HttpRequest request, long durationNanos) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+		long deadline = System.nanoTime() + durationNanos;
+		try {
+			List<Future<long[]>> workers = new ArrayList<>();
+			for (int i = 0; i < CONCURRENCY; i++) {
+				workers.add(executor.submit(() -> {
+					long[] latencies = new long[1024];
+					int count = 0;
+					while (System.nanoTime() < deadline) {
+						long start = System.nanoTime();
+						HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+						if (count == latencies.length) {
+							latencies = Arrays.copyOf(latencies, count * 2);
+						}
+						latencies[count++] = System.nanoTime() - start;
+						assertEquals(200, response.statusCode());
+					}
+					return Arrays.copyOf(latencies, count);
+				}));
+			}
+			long[] all = new long[0];
+			for (Future<long[]> worker : workers) {
+				long[] latencies = worker.get();
+				int offset = all.length;
+				all = Arrays.copyOf(all, offset + latencies.length);
+				System.arraycopy(latencies, 0, all, offset, latencies.length);
+			}
+			assertTrue(all.length > 0);
+			return all;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private String logIn(ConfigurableApplicationContext context) throws Exception {
+		String url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/v1/auth/authenticate";
+		HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"admin@gmail.com\",\"password\":\"admin\"}"))
+				.build(), HttpResponse.BodyHandlers.ofString());
+		Matcher matcher = TOKEN.matcher(response.body());
+		assertTrue(matcher.find(), "admin login failed");
+		return matcher.group(1);
+	}
+
+	private static double percentile(long[] sortedLatencies, double percentile) {
+		int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+		return sortedLatencies[Math.max(0, index)] / 1e6;
+	}
+
+	private record Result(long throughput, double p50, double p99, double p999, double max) {
+	}
+}
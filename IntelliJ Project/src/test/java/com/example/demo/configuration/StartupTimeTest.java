@@ -0,0 +1,134 @@
+package com.example.demo.configuration;
+
+import com.example.demo.DemoApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures the time from launching the application to its first authenticated request, with the default settings
+ * and with the "prod" profile.
+ * Each run starts a new JVM, as a scaled-out instance would, and the time includes seeding: the first request logs in
+ * as the seeded admin user and the second reads students with the issued token. An in-memory H2 database stands in for
+ * PostgreSQL, so the schema is created by Hibernate in both runs.
+ * When the classes of an AOT build are on the class path (mvn -Paot package), the "prod" profile is also measured
+ * with them.
+ */
+class StartupTimeTest {
+
+	// Base64 HS256 secret of the test instances
+	private static final String JWT_SECRET = "dGVzdC1vbmx5LXNlY3JldC1mb3ItdGhlLWF1dGhlbnRpY2F0aW9uLWFwaS1pbnN0YW5jZXM=";
+
+	private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+	private static final long TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+	// Initializer generated by the AOT build; present only after one
+	private static final String AOT_INITIALIZER = DemoApplication.class.getName() + "__ApplicationContextInitializer";
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	void reportsTimeToFirstAuthenticatedRequest() throws Exception {
+		long defaultNanos = timeToFirstAuthenticatedRequest("default");
+		long prodNanos = timeToFirstAuthenticatedRequest("prod");
+
+		System.out.printf("time to first authenticated request: default %d ms, prod %d ms%n",
+				TimeUnit.NANOSECONDS.toMillis(defaultNanos), TimeUnit.NANOSECONDS.toMillis(prodNanos));
+		assertTrue(prodNanos < TIMEOUT_NANOS);
+
+		if (ClassUtils.isPresent(AOT_INITIALIZER, null)) {
+			long aotNanos = timeToFirstAuthenticatedRequest("prod", "-Dspring.aot.enabled=true");
+			System.out.printf("time to first authenticated request: prod with AOT %d ms%n",
+					TimeUnit.NANOSECONDS.toMillis(aotNanos));
+		}
+	}
+
+	private long timeToFirstAuthenticatedRequest(String profile, String... jvmOptions) throws Exception {
+		int port = freePort();
+		List<String> command = new ArrayList<>();
+		command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+		command.addAll(List.of(jvmOptions));
+		command.addAll(List.of(
+				"-cp", System.getProperty("java.class.path"),
+				DemoApplication.class.getName(),
+				"--spring.profiles.active=" + profile,
+				"--spring.datasource.url=jdbc:h2:mem:startup;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+				"--spring.datasource.driver-class-name=org.h2.Driver",
+				"--spring.datasource.username=sa",
+				"--spring.datasource.password=",
+				"--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+				"--spring.jpa.hibernate.ddl-auto=create-drop",
+				"--spring.sql.init.mode=never",
+				"--security.revocation.file=",
+				"--audit.file.enabled=false",
+				"--security.login-rate-limit.enabled=false",
+				"--app.admin.password=admin",
+				"--security.jwt.secret=" + JWT_SECRET,
+				"--server.port=" + port));
+
+		long start = System.nanoTime();
+		Process application = new ProcessBuilder(command)
+				.redirectErrorStream(true)
+				.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+				.start();
+		try {
+			String baseUrl = "http://localhost:" + port;
+
+			// Until the server listens and the admin user is seeded, logging in fails; the rate limit is off for the retries
+			String token = null;
+			while (token == null && application.isAlive() && System.nanoTime() - start < TIMEOUT_NANOS) {
+				token = logIn(baseUrl);
+			}
+			assertNotNull(token, "application did not accept the admin login");
+
+			HttpResponse<String> students = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/students"))
+					.header("Authorization", "Bearer " + token)
+					.build(), HttpResponse.BodyHandlers.ofString());
+			assertEquals(200, students.statusCode());
+			return System.nanoTime() - start;
+		} finally {
+			application.destroy();
+			application.waitFor(30, TimeUnit.SECONDS);
+		}
+	}
+
+	private String logIn(String baseUrl) throws InterruptedException {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/auth/authenticate"))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"admin@gmail.com\",\"password\":\"admin\"}"))
+				.build();
+		try {
+			HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+			Matcher matcher = TOKEN.matcher(response.body());
+			if (response.statusCode() == 200 && matcher.find()) {
+				return matcher.group(1);
+			}
+		} catch (IOException e) {
+			// Not listening yet, or the login was rejected; try again
+		}
+		Thread.sleep(10);
+		return null;
+	}
+
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package com.example.demo.configuration;
+
+import com.example.demo.DemoApplication;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.catalina.connector.Connector;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Boots the application in the default and the "virtual" thread mode and checks what each mode actually runs on:
+ * the executor Tomcat hands requests to, the HikariCP pool the requests share, and a burst of concurrent authenticated
+ * requests larger than Tomcat's platform thread pool, which both modes must serve.
+ * The virtual mode needs Java 21; on older JVMs the profile must fail at startup instead.
+ * An in-memory H2 database stands in for PostgreSQL.
+ */
+class VirtualThreadModeTest {
+
+	// Base64 HS256 secret of the test instances
+	private static final String JWT_SECRET = "dGVzdC1vbmx5LXNlY3JldC1mb3ItdGhlLWF1dGhlbnRpY2F0aW9uLWFwaS1pbnN0YW5jZXM=";
+
+	private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+
+	// More concurrent requests than Tomcat's default maximum of 200 request threads
+	private static final int CONCURRENT_REQUESTS = 250;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	void defaultModeRunsRequestsOnThePlatformThreadPool() throws Exception {
+		try (ConfigurableApplicationContext context = boot("default")) {
+			Executor executor = tomcatExecutor(context);
+			assertInstanceOf(org.apache.tomcat.util.threads.ThreadPoolExecutor.class, executor);
+			assertEquals(200, ((org.apache.tomcat.util.threads.ThreadPoolExecutor) executor).getMaximumPoolSize());
+			assertFalse(context.containsBean("virtualThreadExecutor"));
+			servesConcurrentRequests(context);
+		}
+	}
+
+	@Test
+	void virtualModeRunsRequestsOnVirtualThreadsWithTheProfilePool() throws Exception {
+		assumeTrue(VirtualThreads.isSupported(), "virtual threads require Java 21");
+		try (ConfigurableApplicationContext context = boot("virtual")) {
+			assertSame(context.getBean("virtualThreadExecutor"), tomcatExecutor(context));
+			assertEquals(20, context.getBean(DataSource.class).unwrap(HikariDataSource.class).getMaximumPoolSize());
+			servesConcurrentRequests(context);
+		}
+	}
+
+	@Test
+	void virtualModeFailsAtStartupBeforeJava21() {
+		assumeFalse(VirtualThreads.isSupported(), "virtual threads are supported");
+		Throwable failure = assertThrows(Exception.class, () -> boot("virtual").close());
+		while (failure.getCause() != null) {
+			failure = failure.getCause();
+		}
+		assertInstanceOf(IllegalStateException.class, failure);
+		assertTrue(failure.getMessage().contains("Java 21"));
+	}
+
+	private static ConfigurableApplicationContext boot(String profile) {
+		return new SpringApplicationBuilder(DemoApplication.class)
+				.profiles(profile)
+				.run(
+						"--spring.datasource.url=jdbc:h2:mem:threads-" + profile + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+						"--spring.datasource.driver-class-name=org.h2.Driver",
+						"--spring.datasource.username=sa",
+						"--spring.datasource.password=",
+						"--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+						"--spring.sql.init.mode=never",
+						"--security.password.calibrate=false",
+						"--security.jwt.secret=" + JWT_SECRET,
+						"--security.revocation.file=",
+						"--audit.file.enabled=false",
+						"--server.port=0");
+	}
+
+	private static Executor tomcatExecutor(ConfigurableApplicationContext context) {
+		TomcatWebServer webServer = (TomcatWebServer) ((ServletWebServerApplicationContext) context).getWebServer();
+		Connector connector = webServer.getTomcat().getConnector();
+		return connector.getProtocolHandler().getExecutor();
+	}
+
+	/**
+	 * Sends a burst of authenticated reads at once; each one passes the JWT filter and reads from the connection pool.
+	 */
+	private void servesConcurrentRequests(ConfigurableApplicationContext context) throws Exception {
+		String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+		HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/students/1"))
+				.header("Authorization", "Bearer " + logIn(baseUrl))
+				.build();
+		List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>();
+		for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+			responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+		}
+		for (CompletableFuture<HttpResponse<Void>> response : responses) {
+			assertEquals(200, response.get(1, TimeUnit.MINUTES).statusCode());
+		}
+	}
+
+	private String logIn(String baseUrl) throws Exception {
+		HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/auth/authenticate"))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"admin@gmail.com\",\"password\":\"admin\"}"))
+				.build(), HttpResponse.BodyHandlers.ofString());
+		Matcher matcher = TOKEN.matcher(response.body());
+		assertTrue(matcher.find(), "admin login failed");
+		return matcher.group(1);
+	}
+}
@@ -0,0 +1,160 @@
+package com.example.demo.invalidation.service;
+
+import com.example.demo.invalidation.model.InvalidationEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the invalidation bus. The tests of two instances exchanging events need a PostgreSQL database given on the
+ * command line, e.g.:
+ * <pre>
+ * mvn test -Dtest=PostgresInvalidationBusTest -Dinvalidation.test.datasource.url=jdbc:postgresql://localhost:5432/postgres \
+ *     -Dinvalidation.test.datasource.username=postgres -Dinvalidation.test.datasource.password=secret
+ * </pre>
+ */
+class PostgresInvalidationBusTest {
+
+	private final List<PostgresInvalidationBus> buses = new ArrayList<>();
+
+	@AfterEach
+	void stopBuses() {
+		buses.forEach(PostgresInvalidationBus::stop);
+	}
+
+	@Test
+	void encodesAndDecodesEvents() {
+		assertEquals(InvalidationEvent.user("user@gmail.com"), InvalidationEvent.decode(InvalidationEvent.user("user@gmail.com").encode()));
+		assertEquals(InvalidationEvent.student(42L), InvalidationEvent.decode("s42"));
+		assertEquals(InvalidationEvent.revocation("a b", 1234), InvalidationEvent.decode(InvalidationEvent.revocation("a b", 1234).encode()));
+		assertTrue(InvalidationEvent.decode(InvalidationEvent.user("bad\nemail").encode()).isAll());
+		assertNull(InvalidationEvent.decode("x1"));
+		assertNull(InvalidationEvent.decode("rtoken"));
+	}
+
+	@Test
+	void packsEventsIntoPayloadsWithinTheNotifyLimit() {
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			lines.add(InvalidationEvent.user("user" + i + "@gmail.com").encode());
+		}
+
+		List<String> payloads = PostgresInvalidationBus.pack("node", lines);
+
+		List<String> unpacked = new ArrayList<>();
+		for (String payload : payloads) {
+			assertTrue(payload.getBytes(StandardCharsets.UTF_8).length <= PostgresInvalidationBus.MAX_PAYLOAD_BYTES);
+			String[] split = payload.split("\n");
+			assertEquals("node", split[0]);
+			unpacked.addAll(List.of(split).subList(1, split.length));
+		}
+		assertEquals(lines, unpacked);
+		assertTrue(payloads.size() < 10);
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "invalidation.test.datasource.url", matches = ".+")
+	void deliversEventsToOtherInstancesOnly() throws Exception {
+		String tokenId = "token-" + System.nanoTime();
+		PostgresInvalidationBus first = start();
+		PostgresInvalidationBus second = start();
+		RecordingListener firstUsers = new RecordingListener();
+		RecordingListener secondUsers = new RecordingListener();
+		RecordingListener secondRevocations = new RecordingListener();
+		first.subscribe(InvalidationEvent.Type.USER, firstUsers);
+		second.subscribe(InvalidationEvent.Type.USER, secondUsers);
+		second.subscribe(InvalidationEvent.Type.REVOCATION, secondRevocations);
+		awaitTrue(() -> first.isConnected() && second.isConnected());
+
+		first.publish(InvalidationEvent.user("user@gmail.com"));
+		first.publish(InvalidationEvent.user("user@gmail.com"));
+		first.publish(InvalidationEvent.revocation(tokenId, System.currentTimeMillis() + 60_000));
+
+		awaitTrue(() -> secondUsers.keys.contains("user@gmail.com") && secondRevocations.keys.contains(tokenId));
+		Thread.sleep(200);
+		assertTrue(firstUsers.keys.isEmpty());
+		assertEquals(1, secondUsers.events.get());
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "invalidation.test.datasource.url", matches = ".+")
+	void resynchronizesAfterLosingTheConnection() throws Exception {
+		String tokenId = "token-" + System.nanoTime();
+		PostgresInvalidationBus first = start();
+		PostgresInvalidationBus second = start();
+		RecordingListener secondUsers = new RecordingListener();
+		RecordingListener secondRevocations = new RecordingListener();
+		second.subscribe(InvalidationEvent.Type.USER, secondUsers);
+		second.subscribe(InvalidationEvent.Type.REVOCATION, secondRevocations);
+		awaitTrue(() -> first.isConnected() && second.isConnected());
+
+		// Drop every listening connection; the revocation is published while the second instance is disconnected
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource());
+		jdbcTemplate.queryForList("select pg_terminate_backend(pid) from pg_stat_activity where query like 'LISTEN %'");
+		first.publish(InvalidationEvent.revocation(tokenId, System.currentTimeMillis() + 60_000));
+
+		awaitTrue(() -> secondUsers.invalidatedAll.get() == 1 && secondRevocations.keys.contains(tokenId));
+		awaitTrue(second::isConnected);
+	}
+
+	private PostgresInvalidationBus start() {
+		PostgresInvalidationBus bus = new PostgresInvalidationBus(dataSource(),
+				System.getProperty("invalidation.test.datasource.url"),
+				System.getProperty("invalidation.test.datasource.username", ""),
+				System.getProperty("invalidation.test.datasource.password", ""),
+				"invalidation_test", Duration.ofMillis(20), 10_000, Duration.ofMillis(100), Duration.ofSeconds(1),
+				Duration.ofSeconds(1), new SimpleMeterRegistry());
+		buses.add(bus);
+		bus.start();
+		return bus;
+	}
+
+	private static DriverManagerDataSource dataSource() {
+		return new DriverManagerDataSource(System.getProperty("invalidation.test.datasource.url"),
+				System.getProperty("invalidation.test.datasource.username", ""),
+				System.getProperty("invalidation.test.datasource.password", ""));
+	}
+
+	private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "condition not met in time");
+			Thread.sleep(20);
+		}
+	}
+
+	private static class RecordingListener implements InvalidationListener {
+
+		private final Set<String> keys = ConcurrentHashMap.newKeySet();
+		private final AtomicInteger events = new AtomicInteger();
+		private final AtomicInteger invalidatedAll = new AtomicInteger();
+
+		@Override
+		public void invalidate(InvalidationEvent event) {
+			keys.add(event.getKey());
+			events.incrementAndGet();
+		}
+
+		@Override
+		public void invalidateAll() {
+			invalidatedAll.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package com.example.demo.security.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RouteTableTest {
+
+	private final RouteTable routeTable = new RouteTable();
+
+	@Test
+	void permitsAuthRoutesAtAnyDepth() {
+		assertEquals(RouteTable.Access.PUBLIC, routeTable.match("/api/v1/auth").getAccess());
+		assertEquals(RouteTable.Access.PUBLIC, routeTable.match("/api/v1/auth/authenticate").getAccess());
+		assertEquals(RouteTable.Access.PUBLIC, routeTable.match("/.well-known/jwks.json").getAccess());
+		assertEquals(RouteTable.Access.AUTHENTICATED, routeTable.match("/api/v1/authx").getAccess());
+	}
+
+	@Test
+	void requiresAdminForSingleStudentSegment() {
+		RouteTable.Route route = routeTable.match("/api/v1/students/1");
+
+		assertEquals(RouteTable.Access.AUTHORITY, route.getAccess());
+		assertEquals("ROLE_ADMIN", route.getAuthority());
+		assertEquals(RouteTable.Access.AUTHENTICATED, routeTable.match("/api/v1/students").getAccess());
+		assertEquals(RouteTable.Access.AUTHENTICATED, routeTable.match("/api/v1/students/").getAccess());
+		assertEquals(RouteTable.Access.AUTHENTICATED, routeTable.match("/api/v1/students/1/x").getAccess());
+	}
+
+	@Test
+	void requiresAdminForUserAdministration() {
+		RouteTable.Route route = routeTable.match("/api/v1/users/batch");
+
+		assertEquals(RouteTable.Access.AUTHORITY, route.getAccess());
+		assertEquals("ROLE_ADMIN", route.getAuthority());
+	}
+}
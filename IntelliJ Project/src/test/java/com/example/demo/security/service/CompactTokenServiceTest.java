@@ -0,0 +1,66 @@
+package com.example.demo.security.service;
+
+import com.example.demo.security.model.CompactToken;
+import com.example.demo.user.roles.Role;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactTokenServiceTest {
+
+	private static final String SECRET = "E1FUGDN7CoxpR3/jtqwhBMED4nmFHiijlNLIpTPc0LrFOvih4w0X/UqyNcaKb4BK";
+
+	private static final String PARENT_TOKEN_ID = UUID.randomUUID().toString();
+
+	private final CompactTokenService compactTokenService = new CompactTokenService(SECRET, Duration.ofMinutes(5));
+
+	@Test
+	void verifiesIssuedToken() {
+		String token = compactTokenService.issue(42L, List.of(new SimpleGrantedAuthority("ROLE_ADMIN")), PARENT_TOKEN_ID, null);
+
+		CompactToken verified = compactTokenService.verify(token);
+
+		assertTrue(token.startsWith(CompactTokenService.PREFIX));
+		assertNotNull(verified);
+		assertEquals(42L, verified.getUserId());
+		assertEquals(PARENT_TOKEN_ID, verified.getParentTokenId());
+		assertEquals(42L, compactTokenService.toPrincipal(verified).getId());
+		assertEquals("42", compactTokenService.toPrincipal(verified).getUsername());
+		assertSame(Role.ROLE_ADMIN.getAuthorities(), compactTokenService.toPrincipal(verified).getAuthorities());
+	}
+
+	@Test
+	void rejectsTamperedExpiredAndForeignTokens() {
+		String token = compactTokenService.issue(42L, List.of(new SimpleGrantedAuthority("ROLE_USER")), PARENT_TOKEN_ID, null);
+		// Flip a character of the user id; the last character also holds padding bits the decoder ignores
+		int index = CompactTokenService.PREFIX.length() + 4;
+		String tampered = token.substring(0, index) + (token.charAt(index) == 'A' ? 'B' : 'A') + token.substring(index + 1);
+		CompactTokenService expiring = new CompactTokenService(SECRET, Duration.ZERO);
+		CompactTokenService disabled = new CompactTokenService("", Duration.ofMinutes(5));
+
+		assertNull(compactTokenService.verify(tampered));
+		assertNull(compactTokenService.verify(token.substring(1)));
+		assertNull(expiring.verify(expiring.issue(42L, List.of(new SimpleGrantedAuthority("ROLE_USER")), PARENT_TOKEN_ID, null)));
+		assertNull(compactTokenService.verify(compactTokenService.issue(42L, List.of(), PARENT_TOKEN_ID, null)));
+		assertNull(disabled.verify(token));
+	}
+
+	@Test
+	void expiresWithTheParentToken() {
+		Instant parentExpiration = Instant.now().plusSeconds(30);
+		String token = compactTokenService.issue(42L, List.of(new SimpleGrantedAuthority("ROLE_USER")), PARENT_TOKEN_ID,
+				parentExpiration);
+
+		assertEquals(parentExpiration.getEpochSecond(), compactTokenService.verify(token).getExpiresAt());
+	}
+}
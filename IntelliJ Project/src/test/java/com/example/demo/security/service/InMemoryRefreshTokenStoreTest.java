@@ -0,0 +1,24 @@
+package com.example.demo.security.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryRefreshTokenStoreTest {
+
+	@Test
+	void tokensAreOnlyUsedUpByTheirOwner() {
+		InMemoryRefreshTokenStore store = new InMemoryRefreshTokenStore(Duration.ofDays(14));
+		String refreshToken = store.issue("user@gmail.com");
+
+		// Another user's session leaves the token untouched
+		assertFalse(store.consume(refreshToken, "other@gmail.com"));
+		assertTrue(store.consume(refreshToken, "user@gmail.com"));
+		assertEquals(Optional.empty(), store.consume(refreshToken));
+	}
+}
@@ -0,0 +1,124 @@
+package com.example.demo.security.service;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtKeyManagerTest {
+
+	private static final String SECRET = "dGVzdC1vbmx5LXNlY3JldC1mb3Itand0LWtleS1tYW5hZ2VyLXRlc3Rz";
+
+	private static final String OTHER_SECRET = "YW5vdGhlci1zZWNyZXQtdGhhdC1uby1vdGhlci1pbnN0YW5jZS1zaGFyZXM=";
+
+	@TempDir
+	Path keyDirectory;
+
+	@Test
+	void instancesSharingTheSecretAcceptEachOthersRotatedKeys() {
+		JwtKeyManager first = hmac(SECRET, Duration.ofMinutes(15));
+		JwtKeyManager second = hmac(SECRET, Duration.ofMinutes(15));
+
+		assertEquals(first.getActiveKey().id(), second.getActiveKey().id());
+		assertEquals("user@gmail.com", second.getParser().parseSignedClaims(sign(first.getActiveKey())).getPayload().getSubject());
+	}
+
+	@Test
+	void keysOfThePreviousPeriodAreDerivedOnDemand() {
+		JwtKeyManager signer = hmac(SECRET, Duration.ofHours(2));
+		JwtKeyManager verifier = hmac(SECRET, Duration.ofHours(2));
+		long period = Long.parseLong(signer.getActiveKey().id().substring(JwtKeyManager.DERIVED_KEY_PREFIX.length()));
+
+		// The key of the previous period, which the verifier never held since it started after that period ended
+		String token = sign(signer.derivedKey(period - 1));
+		assertEquals("user@gmail.com", verifier.getParser().parseSignedClaims(token).getPayload().getSubject());
+
+		// Beyond the grace period the key is not derived any more
+		String expired = sign(signer.derivedKey(period - 3));
+		assertThrows(JwtException.class, () -> verifier.getParser().parseSignedClaims(expired));
+	}
+
+	@Test
+	void instancesWithAnotherSecretRejectTheKeys() {
+		JwtKeyManager first = hmac(SECRET, Duration.ofMinutes(15));
+		JwtKeyManager other = hmac(OTHER_SECRET, Duration.ofMinutes(15));
+
+		assertThrows(SignatureException.class, () -> other.getParser().parseSignedClaims(sign(first.getActiveKey())));
+	}
+
+	@Test
+	void hmacKeysNeedAConfiguredSecret() {
+		assertThrows(IllegalStateException.class,
+				() -> new JwtKeyManager("HS256", "", "", "", Duration.ZERO, Duration.ofMinutes(15)));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"RS256", "ES256", "EdDSA"})
+	void instancesSharingTheKeyDirectorySignWithTheSameKeyAndPublishTheSameJwks(String algorithm) throws IOException {
+		writeKeyPair(algorithm, "current", true);
+		writeKeyPair(algorithm, "next", false);
+
+		JwtKeyManager first = new JwtKeyManager(algorithm, "", keyDirectory.toString(), "current", Duration.ZERO, Duration.ofMinutes(15));
+		JwtKeyManager second = new JwtKeyManager(algorithm, "", keyDirectory.toString(), "current", Duration.ZERO, Duration.ofMinutes(15));
+
+		assertEquals("user@gmail.com", second.getParser().parseSignedClaims(sign(first.getActiveKey())).getPayload().getSubject());
+		assertEquals(first.getJwks(), second.getJwks());
+
+		// The key that is not used yet is published too, so verifiers know it before the first token signed with it
+		List<?> jwks = (List<?>) first.getJwks().get("keys");
+		assertEquals(2, jwks.size());
+		jwks.forEach(jwk -> assertEquals(algorithm, ((Map<?, ?>) jwk).get("alg")));
+	}
+
+	@Test
+	void keyPairsNeedAPrivateKeyInTheKeyDirectory() throws IOException {
+		writeKeyPair("EdDSA", "next", false);
+
+		assertThrows(IllegalStateException.class,
+				() -> new JwtKeyManager("EdDSA", "", keyDirectory.toString(), "", Duration.ZERO, Duration.ofMinutes(15)));
+		assertThrows(IllegalStateException.class,
+				() -> new JwtKeyManager("EdDSA", "", "", "", Duration.ZERO, Duration.ofMinutes(15)));
+	}
+
+	private static JwtKeyManager hmac(String secret, Duration gracePeriod) {
+		return new JwtKeyManager("HS256", secret, "", "", Duration.ofHours(1), gracePeriod);
+	}
+
+	private void writeKeyPair(String algorithm, String keyId, boolean withPrivateKey) throws IOException {
+		KeyPair keyPair = ((SignatureAlgorithm) Jwts.SIG.get().forKey(algorithm)).keyPair().build();
+		writePem(keyDirectory.resolve(keyId + JwtKeyManager.PUBLIC_KEY_SUFFIX), "PUBLIC KEY", keyPair.getPublic().getEncoded());
+		if (withPrivateKey) {
+			writePem(keyDirectory.resolve(keyId + JwtKeyManager.PRIVATE_KEY_SUFFIX), "PRIVATE KEY", keyPair.getPrivate().getEncoded());
+		}
+	}
+
+	private static void writePem(Path file, String type, byte[] der) throws IOException {
+		String base64 = Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(der);
+		Files.writeString(file, "-----BEGIN " + type + "-----\n" + base64 + "\n-----END " + type + "-----\n");
+	}
+
+	private static String sign(JwtKeyManager.SigningKey key) {
+		return Jwts.builder()
+				.header().keyId(key.id()).and()
+				.subject("user@gmail.com")
+				.signWith(key.signingKey(), key.algorithm())
+				.compact();
+	}
+}
@@ -0,0 +1,50 @@
+package com.example.demo.security.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordEncoderFactoryTest {
+
+	@Test
+	void encodesWithAlgorithmPrefix() {
+		for (String algorithm : new String[]{"bcrypt", "pbkdf2", "argon2"}) {
+			PasswordEncoder passwordEncoder = new PasswordEncoderFactory(algorithm, false, Duration.ZERO, 0).create();
+
+			String hash = passwordEncoder.encode("password");
+
+			assertTrue(hash.startsWith("{" + algorithm + "}"));
+			assertTrue(passwordEncoder.matches("password", hash));
+			assertFalse(passwordEncoder.upgradeEncoding(hash));
+		}
+	}
+
+	@Test
+	void matchesAndUpgradesLegacyBcryptHashes() {
+		PasswordEncoder passwordEncoder = new PasswordEncoderFactory("argon2", false, Duration.ZERO, 0).create();
+		String legacyHash = new BCryptPasswordEncoder().encode("password");
+
+		assertTrue(passwordEncoder.matches("password", legacyHash));
+		assertTrue(passwordEncoder.upgradeEncoding(legacyHash));
+	}
+
+	@Test
+	void upgradesHashesWeakerThanTheCalibratedStrength() {
+		PasswordEncoder passwordEncoder = new PasswordEncoderFactory("bcrypt", true, Duration.ofSeconds(10), 0).create();
+		String weakHash = "{bcrypt}" + new BCryptPasswordEncoder(10).encode("password");
+
+		assertTrue(passwordEncoder.upgradeEncoding(weakHash));
+	}
+
+	@Test
+	void usesPinnedWorkFactorWithoutCalibrating() {
+		PasswordEncoder passwordEncoder = new PasswordEncoderFactory("bcrypt", true, Duration.ofSeconds(10), 11).create();
+
+		assertTrue(passwordEncoder.encode("password").startsWith("{bcrypt}$2a$11$"));
+	}
+}
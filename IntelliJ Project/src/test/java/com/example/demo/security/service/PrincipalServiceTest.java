@@ -0,0 +1,71 @@
+package com.example.demo.security.service;
+
+import com.example.demo.invalidation.service.NoOpInvalidationBus;
+import com.example.demo.security.model.VerifiedToken;
+import com.example.demo.user.model.User;
+import com.example.demo.user.repository.UserRepository;
+import com.example.demo.user.roles.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PrincipalServiceTest {
+
+	private final UserRepository userRepository = mock(UserRepository.class);
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final PrincipalService principalService = new PrincipalService(userRepository,
+			PrincipalService.PrincipalMode.CLAIMS, 100, Duration.ofMinutes(5), Duration.ofMinutes(5), new NoOpInvalidationBus(),
+			meterRegistry);
+
+	@Test
+	void trustsRolesClaimOfRecentTokensWithSharedAuthorities() {
+		VerifiedToken token = token(Instant.now().minusSeconds(60));
+
+		UserDetails principal = principalService.loadPrincipal(token);
+
+		assertEquals("user@gmail.com", principal.getUsername());
+		assertSame(Role.ROLE_ADMIN.getAuthorities(), principal.getAuthorities());
+		verify(userRepository, never()).findByEmail("user@gmail.com");
+	}
+
+	@Test
+	void loadsUserForTokensOlderThanMaxStaleness() {
+		User user = new User("user", "user@gmail.com", "password", Role.ROLE_USER);
+		when(userRepository.findByEmail("user@gmail.com")).thenReturn(Optional.of(user));
+
+		UserDetails principal = principalService.loadPrincipal(token(Instant.now().minusSeconds(600)));
+
+		assertSame(Role.ROLE_USER.getAuthority(), principal.getAuthorities().iterator().next());
+		verify(userRepository).findByEmail("user@gmail.com");
+	}
+
+	@Test
+	void publishesCacheStatistics() {
+		User user = new User("user", "user@gmail.com", "password", Role.ROLE_USER);
+		when(userRepository.findByEmail("user@gmail.com")).thenReturn(Optional.of(user));
+
+		principalService.loadUserByUsername("user@gmail.com");
+		principalService.loadUserByUsername("user@gmail.com");
+
+		assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "principals").tag("result", "miss").functionCounter().count());
+		assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "principals").tag("result", "hit").functionCounter().count());
+	}
+
+	private static VerifiedToken token(Instant issuedAt) {
+		return new VerifiedToken("id", "user@gmail.com", List.of("ROLE_ADMIN"), issuedAt, issuedAt.plusSeconds(900));
+	}
+}
@@ -0,0 +1,60 @@
+package com.example.demo.security.service;
+
+import com.example.demo.invalidation.service.NoOpInvalidationBus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenRevocationServiceTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void skipsCorruptLinesAndCutsOffATornLastLine() throws Exception {
+		long expiresAt = Instant.now().plusSeconds(600).toEpochMilli();
+		Path file = directory.resolve("revocations.log");
+		Files.writeString(file, "first " + expiresAt + "\nabc \nsecond " + expiresAt + "\nthird 17", StandardCharsets.US_ASCII);
+
+		TokenRevocationService service = open(file);
+		assertTrue(service.isRevoked("first"));
+		assertTrue(service.isRevoked("second"));
+		assertFalse(service.isRevoked("third"));
+
+		// The next revocation starts on a line of its own, so the file still replays after a restart
+		service.revoke("fourth", Instant.ofEpochMilli(expiresAt));
+		service.close();
+		assertEquals(List.of("first " + expiresAt, "abc ", "second " + expiresAt, "fourth " + expiresAt),
+				Files.readAllLines(file, StandardCharsets.US_ASCII));
+		TokenRevocationService restarted = open(file);
+		assertTrue(restarted.isRevoked("fourth"));
+		restarted.close();
+	}
+
+	@Test
+	void checksUuidTokenIdsWithoutTheirStringForm() {
+		TokenRevocationService service = new TokenRevocationService(1 << 10, 4, "", new NoOpInvalidationBus());
+		UUID revoked = UUID.randomUUID();
+		UUID other = UUID.randomUUID();
+		service.revoke(revoked.toString(), null);
+
+		assertTrue(service.isRevoked(revoked.getMostSignificantBits(), revoked.getLeastSignificantBits()));
+		assertFalse(service.isRevoked(other.getMostSignificantBits(), other.getLeastSignificantBits()));
+	}
+
+	private static TokenRevocationService open(Path file) throws Exception {
+		TokenRevocationService service = new TokenRevocationService(1 << 10, 4, file.toString(), new NoOpInvalidationBus());
+		service.open();
+		return service;
+	}
+}
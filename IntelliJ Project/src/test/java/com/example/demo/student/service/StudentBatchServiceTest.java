@@ -0,0 +1,101 @@
+package com.example.demo.student.service;
+
+import com.example.demo.student.exception.MalformedStudentBatchException;
+import com.example.demo.student.model.Student;
+import com.example.demo.student.model.StudentBatchResult;
+import com.example.demo.student.repository.StudentRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DataJpaTest(properties = {
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.show-sql=false",
+		"spring.sql.init.mode=never",
+		"student.batch.size=500",
+		"student.cache.type=none"
+})
+@Import({StudentBatchService.class, NoOpStudentCache.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StudentBatchServiceTest {
+
+	private static final int THROUGHPUT_ROWS = 20_000;
+
+	@Autowired
+	private StudentBatchService studentBatchService;
+
+	@Autowired
+	private StudentRepository studentRepository;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@BeforeEach
+	void setUp() {
+		studentRepository.deleteAllInBatch();
+	}
+
+	@Test
+	void importsJsonArrayAndReportsRejectedItems() throws Exception {
+		String body = "[{\"name\":\"Malcolm Duster\"},{\"name\":\"\"},{\"name\":\"Alex Jackson\"}]";
+
+		List<StudentBatchResult> results = studentBatchService.addStudents(objectMapper.readerFor(Student.class).readValues(body));
+
+		assertEquals(StudentBatchResult.Status.CREATED, results.get(0).getStatus());
+		assertNotNull(results.get(0).getId());
+		assertEquals(StudentBatchResult.Status.REJECTED, results.get(1).getStatus());
+		assertNull(results.get(1).getId());
+		assertEquals(StudentBatchResult.Status.CREATED, results.get(2).getStatus());
+		assertEquals(2, studentRepository.count());
+	}
+
+	@Test
+	void importsNdjson() throws Exception {
+		String body = "{\"name\":\"Malcolm Duster\"}\n{\"name\":\"Alex Jackson\"}\n";
+
+		List<StudentBatchResult> results = studentBatchService.addStudents(objectMapper.readerFor(Student.class).readValues(body));
+
+		assertEquals(2, results.size());
+		assertEquals(2, studentRepository.count());
+	}
+
+	@Test
+	void malformedItemStopsTheImportAfterWritingTheItemsBeforeIt() {
+		String body = "{\"name\":\"Malcolm Duster\"}\n{\"name\":\"\"}\n{\"name\":\"Alex Jackson\"}\n{\"name\":\n{\"name\":\"Ann Lee\"}\n";
+
+		MalformedStudentBatchException exception = assertThrows(MalformedStudentBatchException.class,
+				() -> studentBatchService.addStudents(objectMapper.readerFor(Student.class).readValues(body)));
+
+		assertEquals(3, exception.getIndex());
+		assertEquals(3, exception.getResults().size());
+		assertEquals(2, exception.getCommitted());
+		assertEquals(2, studentRepository.count());
+	}
+
+	@Test
+	void measuresBatchInsertThroughput() {
+		Stream<Student> students = IntStream.range(0, THROUGHPUT_ROWS).mapToObj(i -> new Student("Student " + i));
+
+		long start = System.nanoTime();
+		List<StudentBatchResult> results = studentBatchService.addStudents(students.iterator());
+		long elapsed = System.nanoTime() - start;
+
+		System.out.printf("Inserted %d students in %d ms (%d rows/sec)%n",
+				THROUGHPUT_ROWS, elapsed / 1_000_000, THROUGHPUT_ROWS * 1_000_000_000L / elapsed);
+		assertEquals(THROUGHPUT_ROWS, results.stream().filter(r -> r.getStatus() == StudentBatchResult.Status.CREATED).count());
+		assertEquals(THROUGHPUT_ROWS, studentRepository.count());
+	}
+}
@@ -0,0 +1,61 @@
+package com.example.demo.user.repository;
+
+import com.example.demo.user.model.User;
+import com.example.demo.user.roles.Role;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.show-sql=false",
+		"spring.sql.init.mode=never"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserRepositoryTest {
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		userRepository.deleteAllInBatch();
+	}
+
+	@Test
+	void rejectsEmailsDifferingOnlyInCase() {
+		userRepository.saveAndFlush(new User("user", "User@Gmail.com", "password", Role.ROLE_USER));
+
+		assertThrows(DataIntegrityViolationException.class,
+				() -> userRepository.saveAndFlush(new User("other", "user@GMAIL.com ", "password", Role.ROLE_USER)));
+		assertEquals(1, userRepository.count());
+	}
+
+	@Test
+	void findsUsersIgnoringCase() {
+		userRepository.saveAndFlush(new User("user", "User@Gmail.com", "password", Role.ROLE_USER));
+
+		assertEquals("user@gmail.com", userRepository.findByEmail("USER@gmail.COM").orElseThrow().getEmail());
+	}
+
+	@Test
+	void looksUpEmailsThroughTheUniqueIndex() {
+		String plan = jdbcTemplate.queryForObject(
+				"EXPLAIN SELECT id, email, name, password, role FROM _user WHERE email = 'user@gmail.com'",
+				String.class);
+
+		assertTrue(plan.toUpperCase().contains("UX_USER_EMAIL"), plan);
+	}
+}
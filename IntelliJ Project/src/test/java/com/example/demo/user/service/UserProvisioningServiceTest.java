@@ -0,0 +1,119 @@
+package com.example.demo.user.service;
+
+import com.example.demo.auth.RegisterRequest;
+import com.example.demo.invalidation.service.NoOpInvalidationBus;
+import com.example.demo.security.service.PrincipalService;
+import com.example.demo.user.model.User;
+import com.example.demo.user.model.UserProvisioningResult;
+import com.example.demo.user.repository.UserRepository;
+import com.example.demo.user.roles.Role;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.show-sql=false",
+		"spring.sql.init.mode=never",
+		"user.provisioning.batch-size=100"
+})
+@Import({UserProvisioningService.class, ParallelPasswordHasher.class, PrincipalService.class, NoOpInvalidationBus.class,
+		SimpleMeterRegistry.class, UserProvisioningServiceTest.PasswordEncoderConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserProvisioningServiceTest {
+
+	private static final int THROUGHPUT_ROWS = 1_000;
+
+	@Autowired
+	private UserProvisioningService userProvisioningService;
+
+	@Autowired
+	private ParallelPasswordHasher passwordHasher;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private PasswordEncoder passwordEncoder;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@BeforeEach
+	void setUp() {
+		userRepository.deleteAllInBatch();
+	}
+
+	@Test
+	void reportsStatusOfEveryItem() throws Exception {
+		userRepository.saveAndFlush(new User("existing", "existing@gmail.com", "password", Role.ROLE_USER));
+		String body = """
+				{"name":"One","email":"One@Gmail.com","password":"secret"}
+				{"name":"Two","email":"","password":"secret"}
+				{"name":"Three","email":"one@gmail.com ","password":"secret"}
+				{"name":"Four","email":"EXISTING@gmail.com","password":"secret"}
+				{"name":"Five","email":"five@gmail.com","password":"secret"}
+				""";
+
+		List<UserProvisioningResult> results = userProvisioningService.provisionUsers(
+				objectMapper.readerFor(RegisterRequest.class).readValues(body));
+
+		assertEquals(UserProvisioningResult.Status.CREATED, results.get(0).getStatus());
+		assertNotNull(results.get(0).getId());
+		assertEquals("one@gmail.com", results.get(0).getEmail());
+		assertEquals(UserProvisioningResult.Status.REJECTED, results.get(1).getStatus());
+		assertEquals(UserProvisioningResult.Status.DUPLICATE, results.get(2).getStatus());
+		assertNull(results.get(2).getId());
+		assertEquals(UserProvisioningResult.Status.DUPLICATE, results.get(3).getStatus());
+		assertEquals(UserProvisioningResult.Status.CREATED, results.get(4).getStatus());
+		assertEquals(3, userRepository.count());
+
+		User user = userRepository.findByEmail("one@gmail.com").orElseThrow();
+		assertEquals(Role.ROLE_USER, user.getRole());
+		assertTrue(passwordEncoder.matches("secret", user.getPassword()));
+	}
+
+	@Test
+	void measuresProvisioningThroughput() {
+		Stream<RegisterRequest> requests = IntStream.range(0, THROUGHPUT_ROWS)
+				.mapToObj(i -> new RegisterRequest("User " + i, "user" + i + "@gmail.com", "password" + i));
+
+		long start = System.nanoTime();
+		List<UserProvisioningResult> results = userProvisioningService.provisionUsers(requests.iterator());
+		long elapsed = System.nanoTime() - start;
+
+		System.out.printf("Provisioned %d users on %d hashing threads in %d ms (%d rows/sec)%n",
+				THROUGHPUT_ROWS, passwordHasher.getParallelism(), elapsed / 1_000_000,
+				THROUGHPUT_ROWS * 1_000_000_000L / elapsed);
+		assertEquals(THROUGHPUT_ROWS, results.stream().filter(r -> r.getStatus() == UserProvisioningResult.Status.CREATED).count());
+		assertEquals(THROUGHPUT_ROWS, userRepository.count());
+	}
+
+	@TestConfiguration
+	static class PasswordEncoderConfiguration {
+
+		// Lowest BCrypt work factor, so the test measures the pipeline rather than the hash
+		@Bean
+		PasswordEncoder passwordEncoder() {
+			return new BCryptPasswordEncoder(4);
+		}
+	}
+}